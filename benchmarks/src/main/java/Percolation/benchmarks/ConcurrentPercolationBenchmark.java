@@ -0,0 +1,131 @@
+package Percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Percolation.ConcurrentPercolation;
+import Percolation.Percolation;
+
+/**
+ * Compares ConcurrentPercolation with Percolation. percolation() and concurrentPercolation() open a whole grid
+ * in a fixed random order on one thread, measuring what the atomic operations cost when nobody is watching.
+ * The monitored group opens sites on one thread while three others query the same grid, measuring the
+ * throughput of both sides.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentPercolationBenchmark {
+
+    @State(Scope.Thread)
+    public static class SingleThreaded {
+        @Param({"256", "1024"})
+        int N;
+
+        private int[] openOrder;
+        private Percolation percolation;
+        private ConcurrentPercolation concurrentPercolation;
+
+        @Setup
+        public void setUp() {
+            openOrder = Sites.shuffled(N, 1);
+            percolation = new Percolation(N);
+            concurrentPercolation = new ConcurrentPercolation(N, N);
+        }
+    }
+
+    /*
+     * Both open sites up to just below the threshold, so every open does its full share of unions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean percolation(SingleThreaded s) {
+        s.percolation.reset();
+        int toOpen = (int) (Sites.NEAR_THRESHOLD * s.openOrder.length);
+        for (int i = 0; i < toOpen; ++i) {
+            s.percolation.open(s.openOrder[i] / s.N, s.openOrder[i] % s.N);
+        }
+        return s.percolation.percolates();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean concurrentPercolation(SingleThreaded s) {
+        s.concurrentPercolation.reset();
+        int toOpen = (int) (Sites.NEAR_THRESHOLD * s.openOrder.length);
+        for (int i = 0; i < toOpen; ++i) {
+            s.concurrentPercolation.open(s.openOrder[i] / s.N, s.openOrder[i] % s.N);
+        }
+        return s.concurrentPercolation.percolates();
+    }
+
+    /** The grid shared by the writer and the readers of the monitored group. */
+    @State(Scope.Group)
+    public static class Shared {
+        @Param({"256", "1024"})
+        int N;
+
+        volatile ConcurrentPercolation grid;
+        int[] openOrder;
+
+        @Setup
+        public void setUp() {
+            openOrder = Sites.shuffled(N, 1);
+            grid = new ConcurrentPercolation(N, N);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    /*
+     * Once the grid is as full as a typical test gets, the writer replaces it with a fresh one rather than
+     * calling reset(), which must not run while the readers are using it.
+     */
+    @Benchmark
+    @Group("monitored")
+    @GroupThreads(1)
+    public ConcurrentPercolation writer(Shared shared, Cursor cursor) {
+        ConcurrentPercolation grid = shared.grid;
+        if (cursor.next == (int) (Sites.NEAR_THRESHOLD * shared.openOrder.length)) {
+            grid = new ConcurrentPercolation(shared.N, shared.N);
+            shared.grid = grid;
+            cursor.next = 0;
+        }
+        int site = shared.openOrder[cursor.next++];
+        grid.open(site / shared.N, site % shared.N);
+        return grid;
+    }
+
+    @Benchmark
+    @Group("monitored")
+    @GroupThreads(3)
+    public boolean reader(Shared shared, Cursor cursor) {
+        if (cursor.next == shared.openOrder.length) {
+            cursor.next = 0;
+        }
+        // every site in turn, so the readers see open and blocked sites alike
+        int site = cursor.next++;
+        ConcurrentPercolation grid = shared.grid;
+        return grid.isFull(site / shared.N, site % shared.N) || grid.percolates();
+    }
+}
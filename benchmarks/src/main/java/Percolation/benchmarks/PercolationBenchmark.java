@@ -0,0 +1,119 @@
+package Percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Percolation.BisectionTrial;
+import Percolation.Percolation;
+import Percolation.PermutationTrial;
+import Percolation.SplittableTrialRandom;
+import Percolation.TrialRandom;
+
+/**
+ * Benchmarks the individual Percolation operations and a complete test across grid sizes.
+ * isFull and percolates are measured on a grid opened up to just below the percolation threshold,
+ * where the union find trees are at their largest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PercolationBenchmark {
+    @Param({"64", "256", "1024", "4096"})
+    int N;
+
+    /** A grid receiving one open per invocation of open(). */
+    private Percolation opening;
+    /** The order in which open() opens sites. */
+    private int[] openOrder;
+    private int nextOpen;
+
+    /** A grid opened up to just below the threshold, queried by isFull() and percolates(). */
+    private Percolation nearThreshold;
+    /** Random sites to query, cycled through by isFull(). */
+    private int[] queries;
+    private int nextQuery;
+
+    /** A grid that trial() resets and runs a complete test on. */
+    private Percolation trialGrid;
+    private PermutationTrial trial;
+    private BisectionTrial bisectionTrial;
+    private TrialRandom trialRandom;
+
+    @Setup
+    public void setUp() {
+        openOrder = Sites.shuffled(N, 1);
+        opening = new Percolation(N);
+        nextOpen = 0;
+
+        nearThreshold = new Percolation(N);
+        int[] order = Sites.shuffled(N, 2);
+        int toOpen = (int) (Sites.NEAR_THRESHOLD * order.length);
+        for (int i = 0; i < toOpen; ++i) {
+            nearThreshold.open(order[i] / N, order[i] % N);
+        }
+        queries = Sites.shuffled(N, 3);
+        nextQuery = 0;
+
+        trialGrid = new Percolation(N);
+        trial = new PermutationTrial();
+        bisectionTrial = new BisectionTrial();
+        trialRandom = new SplittableTrialRandom();
+        trialRandom.startTrial(4, 0);
+    }
+
+    /*
+     * Opens the next site of a fixed random order. Once the grid is as full as a typical test
+     * gets, it is reset, so the cost of reset() is amortized over roughly 0.59 * N * N opens.
+     */
+    @Benchmark
+    public Percolation open() {
+        if (nextOpen == (int) (Sites.NEAR_THRESHOLD * openOrder.length)) {
+            opening.reset();
+            nextOpen = 0;
+        }
+        int site = openOrder[nextOpen++];
+        opening.open(site / N, site % N);
+        return opening;
+    }
+
+    @Benchmark
+    public boolean isFull() {
+        if (nextQuery == queries.length) {
+            nextQuery = 0;
+        }
+        int site = queries[nextQuery++];
+        return nearThreshold.isFull(site / N, site % N);
+    }
+
+    @Benchmark
+    public boolean percolates() {
+        return nearThreshold.percolates();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double trial() {
+        trialGrid.reset();
+        return trial.run(trialGrid, trialRandom);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double bisectionTrial() {
+        return bisectionTrial.run(trialGrid, trialRandom);
+    }
+}
@@ -0,0 +1,59 @@
+package Percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Percolation.Percolation;
+import Percolation.PercolationStats;
+import Percolation.SplittableTrialRandom;
+import Percolation.TrialRandom;
+import Percolation.XoshiroTrialRandom;
+
+/**
+ * Measures PercolationStats throughput. Every invocation runs TESTS tests, and JMH divides by that,
+ * so the reported score is in tests per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PercolationStatsBenchmark {
+    private static final int TESTS = 64;
+
+    @Param({"64", "256", "1024"})
+    int N;
+
+    /** The number of worker threads; 0 means one per available processor. */
+    @Param({"1", "0"})
+    int threads;
+
+    /** The TrialRandom the tests draw from. */
+    @Param({"splittable", "xoshiro"})
+    String random;
+
+    private long seed;
+
+    @Benchmark
+    @OperationsPerInvocation(TESTS)
+    public double testsPerSecond() {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        Supplier<TrialRandom> randomFactory = random.equals("xoshiro") ? XoshiroTrialRandom::new
+                                                                       : SplittableTrialRandom::new;
+        return new PercolationStats.Builder(metrics -> new Percolation(N), TESTS).seed(seed++).threads(workers)
+                .random(randomFactory).build().mean();
+    }
+}
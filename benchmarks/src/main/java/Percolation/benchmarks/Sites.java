@@ -0,0 +1,32 @@
+package Percolation.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Helpers shared by the benchmarks for producing reproducible site orders.
+ */
+final class Sites {
+    /** The fraction of sites opened when a benchmark wants a grid close to the percolation threshold. */
+    static final double NEAR_THRESHOLD = 0.59;
+
+    private Sites() {
+    }
+
+    /**
+     * @return a random permutation of the site ids 0 through N * N - 1, the same for the same seed.
+     */
+    static int[] shuffled(int N, long seed) {
+        int[] sites = new int[N * N];
+        for (int i = 0; i < sites.length; ++i) {
+            sites[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = sites.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int site = sites[i];
+            sites[i] = sites[j];
+            sites[j] = site;
+        }
+        return sites;
+    }
+}
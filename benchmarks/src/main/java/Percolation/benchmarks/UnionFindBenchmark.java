@@ -0,0 +1,73 @@
+package Percolation.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Percolation.Percolation;
+import Percolation.PermutationTrial;
+import Percolation.QuickUnionPathCompressionUF;
+import Percolation.SplittableTrialRandom;
+import Percolation.TrialRandom;
+import Percolation.UnionFind;
+import Percolation.WeightedQuickUnionPathCompressionUF;
+import Percolation.WeightedQuickUnionPathHalvingUF;
+
+/**
+ * Compares the union find implementations by running complete tests on a Percolation object backed by each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnionFindBenchmark {
+    @Param({"64", "256", "1024", "4096"})
+    int N;
+
+    @Param({"QuickUnionPathCompression", "WeightedQuickUnionPathCompression", "WeightedQuickUnionPathHalving"})
+    String unionFind;
+
+    private Percolation grid;
+    private PermutationTrial trial;
+    private TrialRandom random;
+
+    @Setup
+    public void setUp() {
+        grid = new Percolation(N, factory(unionFind));
+        trial = new PermutationTrial();
+        random = new SplittableTrialRandom();
+        random.startTrial(5, 0);
+    }
+
+    private static IntFunction<UnionFind> factory(String name) {
+        switch (name) {
+            case "QuickUnionPathCompression":
+                return QuickUnionPathCompressionUF::new;
+            case "WeightedQuickUnionPathCompression":
+                return WeightedQuickUnionPathCompressionUF::new;
+            case "WeightedQuickUnionPathHalving":
+                return WeightedQuickUnionPathHalvingUF::new;
+            default:
+                throw new IllegalArgumentException("Unknown union find: " + name);
+        }
+    }
+
+    @Benchmark
+    public double trial() {
+        grid.reset();
+        return trial.run(grid, random);
+    }
+}
@@ -0,0 +1,104 @@
+package Percolation;
+
+import java.util.Locale;
+
+/**
+ * Collects the clusters of open sites at the moment of percolation over many tests: the size of the largest
+ * cluster and of the spanning cluster as a fraction of all sites, the number of clusters, and a histogram of
+ * cluster sizes in powers of two. Everything is read from the counts a lattice keeps up to date while sites are
+ * opened (see LatticePercolation.enableClusterTracking), so recording a test never scans the lattice.
+ * <p>
+ * An instance must only be updated by one thread; PercolationStats gives each worker its own and adds them up
+ * afterwards.
+ */
+public class ClusterStatistics {
+    private long tests;
+    private double largestSum;
+    private double largestSumOfSquares;
+    private double spanningSum;
+    private double clusterCountSum;
+    /** sizeCounts[k] = number of clusters of between 2^k and 2^(k+1) - 1 sites, over all tests. */
+    private long[] sizeCounts = new long[Integer.SIZE];
+
+    /**
+     * Adds the clusters of a lattice that has just percolated.
+     *
+     * @param perc a lattice with cluster tracking enabled
+     */
+    public void record(LatticePercolation perc) {
+        double sites = perc.numberOfSites();
+        double largest = perc.largestClusterSize() / sites;
+        tests += 1;
+        largestSum += largest;
+        largestSumOfSquares += largest * largest;
+        spanningSum += perc.spanningClusterSize() / sites;
+        clusterCountSum += perc.numberOfClusters();
+        perc.addClusterSizeHistogram(sizeCounts);
+    }
+
+    /** Adds the tests recorded by another instance to this one. */
+    public void add(ClusterStatistics other) {
+        tests += other.tests;
+        largestSum += other.largestSum;
+        largestSumOfSquares += other.largestSumOfSquares;
+        spanningSum += other.spanningSum;
+        clusterCountSum += other.clusterCountSum;
+        for (int k = 0; k < sizeCounts.length; ++k) {
+            sizeCounts[k] += other.sizeCounts[k];
+        }
+    }
+
+    public long tests() {
+        return tests;
+    }
+
+    /** Mean size of the largest cluster at percolation, as a fraction of all sites. */
+    public double meanLargestCluster() {
+        return largestSum / tests;
+    }
+
+    /** Standard deviation of the size of the largest cluster at percolation, as a fraction of all sites. */
+    public double stddevLargestCluster() {
+        double mean = meanLargestCluster();
+        return Math.sqrt(Math.max(0.0, (largestSumOfSquares - tests * mean * mean) / (tests - 1)));
+    }
+
+    /** Mean size of the largest spanning cluster at percolation, as a fraction of all sites. */
+    public double meanSpanningCluster() {
+        return spanningSum / tests;
+    }
+
+    /** Mean number of clusters at percolation. */
+    public double meanClusterCount() {
+        return clusterCountSum / tests;
+    }
+
+    /**
+     * @return the number of clusters of between 2^k and 2^(k+1) - 1 sites, summed over all tests.
+     */
+    public long clustersInSizeBucket(int k) {
+        if (k < 0 || k >= sizeCounts.length) {
+            throw new IndexOutOfBoundsException("Invalid size bucket: " + k);
+        }
+        return sizeCounts[k];
+    }
+
+    /**
+     * @return the means and the histogram of cluster sizes per test, one line per value.
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Largest cluster: %.4f of sites (stddev %.4f)\n",
+                meanLargestCluster(), stddevLargestCluster()));
+        out.append(String.format(Locale.ROOT, "Spanning cluster: %.4f of sites\n", meanSpanningCluster()));
+        out.append(String.format(Locale.ROOT, "Clusters per test: %.1f\n", meanClusterCount()));
+        out.append("Clusters per test by size:\n");
+        for (int k = 0; k < sizeCounts.length; ++k) {
+            if (sizeCounts[k] != 0) {
+                out.append(String.format(Locale.ROOT, "  %d-%d: %.2f\n", 1L << k, (1L << (k + 1)) - 1,
+                        (double) sizeCounts[k] / tests));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,212 @@
+package Percolation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A ROWS by COLS percolation grid that other threads may query while sites are being opened, for example a
+ * monitoring thread reporting on a running simulation. Nothing ever takes a lock: readers never wait for the
+ * writer, and every query sees each site either before or after an open, never halfway through one.
+ * Sites may also be opened by several threads at once.
+ * <p>
+ * Connectivity is kept in a lock-free union find. A root is linked under another with a single compare and set
+ * of its own parent, retried with freshly found roots if it has meanwhile been linked elsewhere. The other root
+ * is not checked and may itself have been linked under a third by then, which only makes the path one link
+ * longer. Roots are always linked in the order of a fixed hash of their ids, so no cycle can form and trees
+ * stay shallow. Finds shorten paths by
+ * halving, each shortening being a compare and set that only ever points a site at one of its ancestors, so
+ * readers may do it too without disturbing anybody.
+ * <p>
+ * Like LatticePercolation, the state of the root of each component records whether the component touches the
+ * top and the bottom row. After a link, the flags of the old root are added to the new root, following the
+ * root upwards if it has been linked in turn, so the flags always reach the current root of the component.
+ * A site is full when its root touches the top row, and the grid percolates once some root touches both rows.
+ * <p>
+ * Opening a site costs several atomic operations more than Percolation does, so a single threaded simulation
+ * with nobody watching should use Percolation. reset() must not be called while other threads use the grid.
+ */
+public class ConcurrentPercolation {
+    private static final int OPEN = 1;
+    private static final int TOUCHES_TOP = 2;
+    private static final int TOUCHES_BOTTOM = 4;
+    private static final int SPANNING = TOUCHES_TOP | TOUCHES_BOTTOM;
+
+    // final, so that a thread handed the grid through a data race still sees it fully constructed
+    private final int rows;
+    private final int cols;
+    /** parent.get(i) = parent of site i in the union find. */
+    private final AtomicIntegerArray parent;
+    /** The open flag of every site, and the rows touched by the component of every root. */
+    private final AtomicIntegerArray state;
+    private final AtomicInteger numOpenSites = new AtomicInteger();
+    private volatile boolean percolated;
+
+    public ConcurrentPercolation(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid args to ConcurrentPercolation Constructor");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        parent = new AtomicIntegerArray(rows * cols);
+        state = new AtomicIntegerArray(rows * cols);
+        for (int i = 0; i < rows * cols; ++i) {
+            parent.set(i, i);
+        }
+    }
+
+    private void checkBounds(int row, int col) {
+        if (row >= rows || row < 0) {
+            throw new IndexOutOfBoundsException("Invalid row for grid of " + rows + " rows: " + row);
+        }
+        if (col >= cols || col < 0) {
+            throw new IndexOutOfBoundsException("Invalid column for grid of " + cols + " columns: " + col);
+        }
+    }
+
+    /**
+     * @return the number of sites that have been opened.
+     */
+    public int numberOfOpenSites() {
+        return numOpenSites.get();
+    }
+
+    /**
+     * @return true if the site at ROW, COL has been opened.
+     */
+    public boolean isOpen(int row, int col) {
+        checkBounds(row, col);
+        return (state.get(row * cols + col) & OPEN) != 0;
+    }
+
+    /**
+     * @return true if the site at ROW, COL is connected to the top row by open sites. A site that an open in
+     * progress is about to connect to the top row may still be reported as not full.
+     */
+    public boolean isFull(int row, int col) {
+        checkBounds(row, col);
+        int site = row * cols + col;
+        return (state.get(site) & OPEN) != 0 && (state.get(find(site)) & TOUCHES_TOP) != 0;
+    }
+
+    /**
+     * @return true if there is a path from the top row to the bottom row. Runs in constant time.
+     */
+    public boolean percolates() {
+        return percolated;
+    }
+
+    /**
+     * Opens the site at ROW, COL and connects it to each of its open neighbors.
+     * Do nothing if the site has already been opened.
+     */
+    public void open(int row, int col) {
+        checkBounds(row, col);
+        int site = row * cols + col;
+        int flags = OPEN;
+        if (row == 0) {
+            flags |= TOUCHES_TOP;
+        }
+        if (row == rows - 1) {
+            flags |= TOUCHES_BOTTOM;
+        }
+        if (!state.compareAndSet(site, 0, flags)) {
+            return;
+        }
+        numOpenSites.incrementAndGet();
+        if ((flags & SPANNING) == SPANNING) {
+            percolated = true;
+        }
+        // a neighbor opened at the same time sees this site open, or this site sees it, or both
+        if (row > 0) {
+            connect(site, site - cols);
+        }
+        if (row < rows - 1) {
+            connect(site, site + cols);
+        }
+        if (col > 0) {
+            connect(site, site - 1);
+        }
+        if (col < cols - 1) {
+            connect(site, site + 1);
+        }
+    }
+
+    private void connect(int site, int other) {
+        if ((state.get(other) & OPEN) != 0) {
+            union(site, other);
+        }
+    }
+
+    private int find(int p) {
+        while (true) {
+            int parentP = parent.get(p);
+            if (parentP == p) {
+                return p;
+            }
+            int grandparent = parent.get(parentP);
+            if (grandparent != parentP) {
+                parent.compareAndSet(p, parentP, grandparent);    // path compression by halving
+            }
+            p = grandparent;
+        }
+    }
+
+    private void union(int p, int q) {
+        while (true) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ) {
+                return;
+            }
+            // always link the root of lower priority under the other, so links can never form a cycle
+            if (priority(rootP) > priority(rootQ)) {
+                int swap = rootP;
+                rootP = rootQ;
+                rootQ = swap;
+            }
+            if (parent.compareAndSet(rootP, rootP, rootQ)) {
+                addFlags(rootQ, state.get(rootP) & SPANNING);
+                return;
+            }
+        }
+    }
+
+    /*
+     * Add the given flags to the root of the component containing the site. If the root is linked under another
+     * root while the flags are being added, whoever linked it may have copied its flags before they arrived, so
+     * the flags are added again to the new root until they land on a root that is still a root afterwards.
+     */
+    private void addFlags(int site, int flags) {
+        int root = site;
+        while (true) {
+            root = find(root);
+            int combined = state.accumulateAndGet(root, flags, (current, added) -> current | added);
+            if ((combined & SPANNING) == SPANNING) {
+                percolated = true;
+            }
+            if (parent.get(root) == root) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * A fixed pseudorandom order on site ids (a bijective multiplicative hash), so that linking by priority
+     * behaves like linking in a random order and keeps trees shallow.
+     */
+    private static int priority(int site) {
+        return site * 0x9e3779b9;
+    }
+
+    /**
+     * Blocks every site again. Must not be called while any other thread is using the grid.
+     */
+    public void reset() {
+        for (int i = 0; i < rows * cols; ++i) {
+            parent.set(i, i);
+            state.set(i, 0);
+        }
+        numOpenSites.set(0);
+        percolated = false;
+    }
+}
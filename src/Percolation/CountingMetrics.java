@@ -0,0 +1,153 @@
+package Percolation;
+
+import java.util.Locale;
+
+/**
+ * Counts the operations reported to it: finds, the links they followed and rewrote, unions, opens and
+ * percolates() calls, along with a histogram of find depths. Counters are plain longs, so an instance must only
+ * be updated by one thread; PercolationStats gives each worker its own and adds them up afterwards.
+ * <p>
+ * A lattice and its union finds may share one instance. A lattice keeps its sites in a single union find and
+ * finds the roots of two open neighbors before linking them, so every merge costs two finds and neighbors that
+ * are already connected are not counted as unions, redundant or otherwise.
+ */
+public class CountingMetrics implements PercolationMetrics {
+    /** Depths at or above this land in the last bucket of the histogram. */
+    private static final int MAX_DEPTH = 63;
+
+    private long finds;
+    private long findDepth;
+    private long compressionSteps;
+    private long unions;
+    private long redundantUnions;
+    private long opens;
+    private long redundantOpens;
+    private long percolatesCalls;
+    /** The number of trials the counts were collected over. */
+    private long trials;
+    /** depthCounts[d] = number of finds that followed d links, or at least MAX_DEPTH for the last bucket. */
+    private long[] depthCounts = new long[MAX_DEPTH + 1];
+
+    @Override
+    public void found(int depth, int compressed) {
+        finds += 1;
+        findDepth += depth;
+        compressionSteps += compressed;
+        depthCounts[Math.min(depth, MAX_DEPTH)] += 1;
+    }
+
+    @Override
+    public void united(boolean merged) {
+        unions += 1;
+        if (!merged) {
+            redundantUnions += 1;
+        }
+    }
+
+    @Override
+    public void opened(boolean redundant) {
+        opens += 1;
+        if (redundant) {
+            redundantOpens += 1;
+        }
+    }
+
+    @Override
+    public void percolatesCalled() {
+        percolatesCalls += 1;
+    }
+
+    /**
+     * Called after every trial whose operations were counted, so that report() can give them per trial.
+     */
+    public void trialFinished() {
+        trials += 1;
+    }
+
+    /** Adds the counts of another instance to this one. */
+    public void add(CountingMetrics other) {
+        trials += other.trials;
+        finds += other.finds;
+        findDepth += other.findDepth;
+        compressionSteps += other.compressionSteps;
+        unions += other.unions;
+        redundantUnions += other.redundantUnions;
+        opens += other.opens;
+        redundantOpens += other.redundantOpens;
+        percolatesCalls += other.percolatesCalls;
+        for (int depth = 0; depth <= MAX_DEPTH; ++depth) {
+            depthCounts[depth] += other.depthCounts[depth];
+        }
+    }
+
+    public long finds() {
+        return finds;
+    }
+
+    /** The total number of links followed by every find. */
+    public long findDepth() {
+        return findDepth;
+    }
+
+    public long compressionSteps() {
+        return compressionSteps;
+    }
+
+    public long unions() {
+        return unions;
+    }
+
+    /** The number of unions of two sites that were already connected. */
+    public long redundantUnions() {
+        return redundantUnions;
+    }
+
+    public long opens() {
+        return opens;
+    }
+
+    /** The number of opens of a site that was already open. */
+    public long redundantOpens() {
+        return redundantOpens;
+    }
+
+    public long percolatesCalls() {
+        return percolatesCalls;
+    }
+
+    public long trials() {
+        return trials;
+    }
+
+    /**
+     * @return the number of finds that followed DEPTH links; the count for 63 includes every deeper find.
+     */
+    public long findsOfDepth(int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IndexOutOfBoundsException("Invalid find depth: " + depth);
+        }
+        return depthCounts[depth];
+    }
+
+    /**
+     * @return the operations per finished trial and the histogram of find depths, one line per value.
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Opens per trial: %.1f (%.1f redundant)\n",
+                (double) opens / trials, (double) redundantOpens / trials));
+        out.append(String.format(Locale.ROOT, "percolates() calls per trial: %.1f\n", (double) percolatesCalls / trials));
+        out.append(String.format(Locale.ROOT, "Unions per trial: %.1f (%.1f redundant)\n",
+                (double) unions / trials, (double) redundantUnions / trials));
+        out.append(String.format(Locale.ROOT, "Finds per trial: %.1f, mean depth %.3f, compression steps per trial: %.1f\n",
+                (double) finds / trials, finds == 0 ? 0.0 : (double) findDepth / finds, (double) compressionSteps / trials));
+        out.append("Find depth histogram:\n");
+        for (int depth = 0; depth <= MAX_DEPTH; ++depth) {
+            if (depthCounts[depth] != 0) {
+                out.append(String.format(Locale.ROOT, "  %2d%s %d\n", depth, depth == MAX_DEPTH ? "+" : " ",
+                        depthCounts[depth]));
+            }
+        }
+        return out.toString();
+    }
+}
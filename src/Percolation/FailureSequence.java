@@ -1,43 +1,37 @@
 package Percolation;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
 
 /**
  * A class that serves as a record of inputs for debugging. Tracks the number of failed operations
  * during a test and prints a sequence of input commands to the standard output upon request.
+ * Inputs are kept as consecutive row and column values in a single growable int array, and can be
+ * written either as text or as a compact binary SiteTrace.
  */
 public class FailureSequence {
-    /** A container for Pair objects to represent the input. */
-    private ArrayList<Pair> inputs;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The recorded inputs; input i is the row inputs[2 * i] and the column inputs[2 * i + 1]. */
+    private int[] inputs;
+    /** The number of recorded inputs. */
+    private int numInputs;
     /** The number of repeated failed operations of a test. */
     private int failedOps;
     /** The size of the grid for the tests this object tracks. */
     private int gridSize;
 
     public FailureSequence(int N) {
-        inputs = new ArrayList<>();
+        inputs = new int[2 * INITIAL_CAPACITY];
+        numInputs = 0;
         failedOps = 0;
         gridSize = N;
     }
 
-    /**
-     * An inner class for conveniently representing inputs. Very simple, only needs to store the
-     * two components of an input operation (row and column) and provide a simple string representation.
-     */
-    private class Pair {
-        int x;
-        int y;
-
-        Pair(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        public String toString() {
-            return x + " " + y;
-        }
-    }
-
     /**
      * Increment the failedOps value, returns the failedOps value for a somewhat convenient fluent interface.
      *
@@ -62,14 +56,26 @@ public class FailureSequence {
      * @param y the second argument of the command.
      */
     public void recordInput(int x, int y) {
-        inputs.add(new Pair(x, y));
+        if (2 * numInputs == inputs.length) {
+            inputs = Arrays.copyOf(inputs, 2 * inputs.length);
+        }
+        inputs[2 * numInputs] = x;
+        inputs[2 * numInputs + 1] = y;
+        numInputs += 1;
     }
 
     /**
-     * Clear the input record.
+     * @return the number of recorded inputs.
+     */
+    public int size() {
+        return numInputs;
+    }
+
+    /**
+     * Clear the input record. Keeps the storage allocated so far for the next test.
      */
     public void resetInput() {
-        inputs.clear();
+        numInputs = 0;
         resetFailedOps();
     }
 
@@ -78,9 +84,21 @@ public class FailureSequence {
      * the PercolationVisualizer can take. Useful for debugging.
      */
     public void recordFailedTest() {
-        System.out.println(gridSize);
-        for (int i = 0; i < inputs.size(); ++i) {
-            System.out.println(inputs.get(i).x + " " + inputs.get(i).y);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        out.println(gridSize);
+        for (int i = 0; i < numInputs; ++i) {
+            out.println(inputs[2 * i] + " " + inputs[2 * i + 1]);
         }
+        out.flush();
+    }
+
+    /**
+     * Writes the recorded inputs as a binary SiteTrace, which PercolationVisualizer and
+     * PercolationReplayer accept as well as the text format.
+     *
+     * @throws IllegalArgumentException if a recorded input lies outside of the grid
+     */
+    public void writeTrace(OutputStream out) throws IOException {
+        SiteTrace.write(out, gridSize, inputs, numInputs);
     }
 }
@@ -0,0 +1,530 @@
+package Percolation;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The engine shared by every percolation lattice. Sites are identified by a single integer id between 0 and
+ * numberOfSites() - 1, laid out so that the first layer of ids is the top of the lattice and the last layer of
+ * ids is the bottom. Subclasses give the ids a shape (a rectangular grid, a 3D box, ...) by telling the engine
+ * which sites are adjacent to each other; everything else, opening sites, tracking fullness, deciding whether
+ * the lattice percolates, lives here.
+ * <p>
+ * Connectivity is tracked by a single union find over the sites. The state byte of the root of every component
+ * records whether the component touches the top layer and whether it touches the bottom layer, and the two
+ * flags are combined when components are merged. A site is full exactly when the root of its component touches
+ * the top layer, so bottom layer sites never appear full just because the lattice percolates (backwash), and
+ * the lattice percolates as soon as some component touches both layers. Asking whether a site is full walks up
+ * to its root without compressing the path, so it never writes and any number of threads may ask at once while
+ * no thread is opening sites.
+ */
+public abstract class LatticePercolation {
+    /*
+     * Bit flags stored in siteState for each site. Every site gets a single byte indexed by its
+     * id, so looking up or updating a site never boxes an index or chases an object.
+     * By default, each site is not open. TOUCHES_TOP and TOUCHES_BOTTOM are only meaningful for the
+     * root of a component, where they record which edges of the lattice the component touches.
+     */
+    private static final byte OPEN = 1;
+    private static final byte TOUCHES_TOP = 2;
+    private static final byte TOUCHES_BOTTOM = 4;
+    private static final byte SPANNING = TOUCHES_TOP | TOUCHES_BOTTOM;
+
+    /** A union find object for determining whether given sites are connected. */
+    private UnionFind connections;
+    /** The open flag of every site, and the edges touched by the component of every root, indexed by site id. */
+    private byte[] siteState;
+    private int numSites;
+    /** The number of sites in the top (and the bottom) layer. */
+    private int layerSize;
+    private int numOpenSites;
+    /** True once some component touches both the top and the bottom layer. */
+    private boolean percolated;
+    /** If true, percolates() scans the bottom layer instead of reading the flag kept up to date by open. */
+    private boolean scanBottomLayer;
+    /** Scratch space receiving the sites adjacent to the site being opened. */
+    private int[] adjacent;
+    /** Receives every open and percolates() call. */
+    private PercolationMetrics metrics = PercolationMetrics.NONE;
+
+    /**
+     * clusterSize[root] = number of open sites in the component with that root. Only allocated once cluster
+     * tracking has been requested.
+     */
+    private int[] clusterSize;
+    /** sizeBuckets[k] = number of clusters of between 2^k and 2^(k+1) - 1 open sites. */
+    private int[] sizeBuckets;
+    private int numClusters;
+    private int largestCluster;
+    private int largestSpanningCluster;
+
+    /** True once a subclass has asked to be told about sites being opened and filled. */
+    private boolean notifying;
+    /**
+     * Circular linked lists threading together the members of each component, so that every site of a
+     * component can be reported when it becomes full. Only allocated once notifications have been requested.
+     */
+    private int[] nextInComponent;
+    /** Scratch space for the distinct components next to a site being opened, used while notifying. */
+    private int[] adjacentMembers;
+    private int[] adjacentRoots;
+    private boolean[] adjacentWasFull;
+
+    /**
+     * @param numSites the number of sites in the lattice
+     * @param layerSize the number of sites in the top layer, which is the first layerSize ids, and in the
+     *                  bottom layer, which is the last layerSize ids
+     * @param maxAdjacent the largest number of sites any one site can be adjacent to
+     * @param scanBottomLayer if true, percolates() checks every site of the bottom layer for fullness
+     *                        instead of reading a flag kept up to date as sites are opened. Kept for comparison.
+     * @param unionFindFactory creates the union find object tracking connectivity given a number of sites
+     */
+    protected LatticePercolation(int numSites, int layerSize, int maxAdjacent, boolean scanBottomLayer,
+                                 IntFunction<UnionFind> unionFindFactory) {
+        if (numSites > Integer.MAX_VALUE - 2) {
+            throw new IllegalArgumentException("Too many sites: " + numSites);
+        }
+        this.numSites = numSites;
+        this.layerSize = layerSize;
+        this.scanBottomLayer = scanBottomLayer;
+        connections = unionFindFactory.apply(numSites);
+        siteState = new byte[numSites];
+        adjacent = new int[maxAdjacent];
+        numOpenSites = 0;
+    }
+
+    /**
+     * Computes the product of the given dimensions, rejecting non-positive dimensions and lattices
+     * too large to index with an int.
+     */
+    protected static int countSites(int... dimensions) {
+        long count = 1;
+        for (int dimension : dimensions) {
+            if (dimension <= 0) {
+                throw new IllegalArgumentException("Dimension less than or equal to 0");
+            }
+            count *= dimension;
+            if (count > Integer.MAX_VALUE - 2) {
+                throw new IllegalArgumentException("Lattice too large: more than " + (Integer.MAX_VALUE - 2) + " sites");
+            }
+        }
+        return (int) count;
+    }
+
+    /**
+     * @return the size of the lattice along each of its axes, from the axis running from the top layer to the
+     * bottom layer to the axis along which ids are consecutive, e.g. rows and columns.
+     */
+    public abstract int[] dimensions();
+
+    /**
+     * Writes the ids of every site adjacent to the given site into the array, starting at index 0.
+     *
+     * @return the number of adjacent sites written
+     */
+    protected abstract int adjacentSites(int site, int[] adjacent);
+
+    /**
+     * @return the number of sites in the lattice.
+     */
+    public int numberOfSites() {
+        return numSites;
+    }
+
+    /**
+     * @return the number of sites in the top (and the bottom) layer; layer k holds the ids k * layerSize() to
+     * (k + 1) * layerSize() - 1, and adjacent sites always lie in the same layer or in neighboring layers.
+     */
+    int layerSize() {
+        return layerSize;
+    }
+
+    /**
+     * @return the number of sites that have been opened.
+     */
+    public int numberOfOpenSites() {
+        return numOpenSites;
+    }
+
+    private void checkSite(int site) {
+        if (site < 0 || site >= numSites) {
+            throw new IndexOutOfBoundsException("Invalid site for lattice of " + numSites + " sites: " + site);
+        }
+    }
+
+    /**
+     * @return true if the site with the given id has been opened.
+     */
+    public boolean isOpenSite(int site) {
+        checkSite(site);
+        return (siteState[site] & OPEN) != 0;
+    }
+
+    /**
+     * @return true if the site with the given id is open and connected to the top layer by open sites.
+     * Only reads the lattice, so it is safe to call from several threads at once while no site is being opened.
+     */
+    public boolean isFullSite(int site) {
+        checkSite(site);
+        return (siteState[site] & OPEN) != 0 && (siteState[connections.root(site)] & TOUCHES_TOP) != 0;
+    }
+
+    /**
+     * Opens the site with the given id and connects it to every adjacent open site.
+     * Do nothing if the site has already been opened.
+     */
+    public void openSite(int site) {
+        checkSite(site);
+        open(site);
+    }
+
+    private void open(int site) {
+        boolean redundant = (siteState[site] & OPEN) != 0;
+        metrics.opened(redundant);
+        if (redundant) {
+            return;
+        }
+        numOpenSites += 1;
+        byte state = OPEN;
+        if (isInTopLayer(site)) {
+            state |= TOUCHES_TOP;
+        }
+        if (isInBottomLayer(site)) {
+            state |= TOUCHES_BOTTOM;
+        }
+        siteState[site] = state;
+        if ((state & SPANNING) == SPANNING) {
+            percolated = true;
+        }
+        int numAdjacent = adjacentSites(site, adjacent);
+        int numComponents = 0;
+        if (notifying) {
+            numComponents = findAdjacentComponents(numAdjacent);
+        }
+        if (clusterSize != null) {
+            openCluster(site);
+        }
+        for (int i = 0; i < numAdjacent; ++i) {
+            int other = adjacent[i];
+            if ((siteState[other] & OPEN) != 0) {
+                merge(site, other);
+            }
+        }
+        if (notifying) {
+            notifyOpened(site, numComponents);
+        }
+    }
+
+    /*
+     * Connect two open sites and give the root of the merged component the edges touched by either one.
+     * Finds each root once and links the roots directly, rather than finding them again in union.
+     */
+    private void merge(int p, int q) {
+        int rootP = connections.find(p);
+        int rootQ = connections.find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        int root = connections.link(rootP, rootQ);
+        byte edges = (byte) ((siteState[rootP] | siteState[rootQ]) & SPANNING);
+        siteState[root] |= edges;
+        if (edges == SPANNING) {
+            percolated = true;
+        }
+        if (clusterSize != null) {
+            mergeClusters(rootP, rootQ, root);
+        }
+    }
+
+    private boolean isInTopLayer(int site) {
+        return site < layerSize;
+    }
+
+    private boolean isInBottomLayer(int site) {
+        return site >= numSites - layerSize;
+    }
+
+    /**
+     * Determines whether there is a path from the top layer of the lattice to the bottom layer.
+     * Runs in constant time unless this object was created in bottom layer scanning mode.
+     *
+     * @return true if there is a path from the top layer to the bottom layer, else false.
+     */
+    public boolean percolates() {
+        metrics.percolatesCalled();
+        if (scanBottomLayer) {
+            return scanBottomLayerForFullSite();
+        }
+        return percolated;
+    }
+
+    /*
+     * The original percolation check: look for a full site anywhere in the bottom layer.
+     */
+    private boolean scanBottomLayerForFullSite() {
+        for (int site = numSites - layerSize; site < numSites; ++site) {
+            if (isFullSite(site)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reports every open and percolates() call from now on to the given metrics. To count the finds and unions
+     * as well, create the lattice with union finds reporting to the same metrics, e.g.
+     * {@code n -> new WeightedQuickUnionPathCompressionUF(n, metrics)}.
+     *
+     * @param metrics the metrics to report to, or PercolationMetrics.NONE to stop reporting
+     */
+    public void setMetrics(PercolationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Blocks every site again, restoring the lattice to the state it was in right after construction.
+     * Reuses the existing arrays, so a single object can run any number of tests without allocating.
+     */
+    public void reset() {
+        Arrays.fill(siteState, (byte) 0);
+        connections.reset();
+        numOpenSites = 0;
+        percolated = false;
+        if (nextInComponent != null) {
+            buildComponentLists();
+        }
+        if (clusterSize != null) {
+            resetClusters();
+        }
+    }
+
+    /**
+     * Starts keeping track of the sizes of the clusters of open sites as sites are opened, so that their number
+     * and sizes can be read at any time without scanning the lattice. The clusters are the components of the
+     * union find, so this only costs an int per site, which is allocated the first time cluster tracking is
+     * requested. Must be called while the lattice is empty, as sites opened before are not counted.
+     */
+    public void enableClusterTracking() {
+        if (clusterSize != null) {
+            return;
+        }
+        if (numOpenSites != 0) {
+            throw new IllegalStateException("Cluster tracking must be enabled on an empty lattice");
+        }
+        clusterSize = new int[numSites];
+        sizeBuckets = new int[Integer.SIZE];
+    }
+
+    private void checkClusterTracking() {
+        if (clusterSize == null) {
+            throw new IllegalStateException("Cluster tracking has not been enabled");
+        }
+    }
+
+    /**
+     * @return the number of clusters of open sites, each cluster being a maximal set of connected open sites.
+     */
+    public int numberOfClusters() {
+        checkClusterTracking();
+        return numClusters;
+    }
+
+    /**
+     * @return the number of open sites in the largest cluster, or 0 if no site is open.
+     */
+    public int largestClusterSize() {
+        checkClusterTracking();
+        return largestCluster;
+    }
+
+    /**
+     * @return the number of open sites in the largest cluster touching both the top and the bottom layer,
+     * or 0 if the lattice does not percolate.
+     */
+    public int spanningClusterSize() {
+        checkClusterTracking();
+        return largestSpanningCluster;
+    }
+
+    /**
+     * @return the number of open sites in the cluster containing the given site, or 0 if the site is not open.
+     */
+    public int clusterSize(int site) {
+        checkSite(site);
+        checkClusterTracking();
+        if ((siteState[site] & OPEN) == 0) {
+            return 0;
+        }
+        return clusterSize[connections.root(site)];
+    }
+
+    /**
+     * Adds the number of clusters of each size to the given histogram: counts[k] is increased by the number of
+     * clusters of between 2^k and 2^(k+1) - 1 open sites.
+     *
+     * @param counts an array of at least 32 counts
+     */
+    public void addClusterSizeHistogram(long[] counts) {
+        checkClusterTracking();
+        for (int k = 0; k < sizeBuckets.length; ++k) {
+            counts[k] += sizeBuckets[k];
+        }
+    }
+
+    private void resetClusters() {
+        Arrays.fill(sizeBuckets, 0);
+        numClusters = 0;
+        largestCluster = 0;
+        largestSpanningCluster = 0;
+    }
+
+    /*
+     * Make the newly opened site a cluster of its own. Sizes of sites that are not open are never read, so they
+     * are simply overwritten here rather than cleared on reset.
+     */
+    private void openCluster(int site) {
+        clusterSize[site] = 1;
+        sizeBuckets[0] += 1;
+        numClusters += 1;
+        clusterGrew(site);
+    }
+
+    /*
+     * Called once the clusters with roots rootP and rootQ have been merged into the cluster with the given root.
+     */
+    private void mergeClusters(int rootP, int rootQ, int root) {
+        int size = clusterSize[rootP] + clusterSize[rootQ];
+        sizeBuckets[sizeBucket(clusterSize[rootP])] -= 1;
+        sizeBuckets[sizeBucket(clusterSize[rootQ])] -= 1;
+        sizeBuckets[sizeBucket(size)] += 1;
+        clusterSize[root] = size;
+        numClusters -= 1;
+        clusterGrew(root);
+    }
+
+    private void clusterGrew(int root) {
+        int size = clusterSize[root];
+        largestCluster = Math.max(largestCluster, size);
+        if ((siteState[root] & SPANNING) == SPANNING) {
+            largestSpanningCluster = Math.max(largestSpanningCluster, size);
+        }
+    }
+
+    private static int sizeBucket(int size) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * Called after a site has been opened, once notifications have been requested. Does nothing by default.
+     */
+    protected void siteOpened(int site) {
+    }
+
+    /**
+     * Called after a site has become full, once notifications have been requested. Every site is reported
+     * at most once between resets. Does nothing by default.
+     */
+    protected void siteFilled(int site) {
+    }
+
+    /**
+     * Starts calling siteOpened and siteFilled. Keeping track of which sites to report costs an extra int per
+     * site, which is only allocated the first time notifications are requested.
+     */
+    protected void enableNotifications() {
+        notifying = true;
+        if (nextInComponent == null) {
+            nextInComponent = new int[numSites];
+            adjacentMembers = new int[adjacent.length];
+            adjacentRoots = new int[adjacent.length];
+            adjacentWasFull = new boolean[adjacent.length];
+            buildComponentLists();
+        }
+    }
+
+    /**
+     * Stops calling siteOpened and siteFilled.
+     */
+    protected void disableNotifications() {
+        notifying = false;
+        nextInComponent = null;
+    }
+
+    /*
+     * Thread every site into the list of the component it currently belongs to.
+     */
+    private void buildComponentLists() {
+        for (int i = 0; i < nextInComponent.length; ++i) {
+            nextInComponent[i] = i;
+        }
+        for (int i = 0; i < nextInComponent.length; ++i) {
+            int root = connections.find(i);
+            if (root != i) {
+                spliceComponents(i, root);
+            }
+        }
+    }
+
+    /*
+     * Merge the distinct circular lists containing p and q by exchanging their successors.
+     */
+    private void spliceComponents(int p, int q) {
+        int next = nextInComponent[p];
+        nextInComponent[p] = nextInComponent[q];
+        nextInComponent[q] = next;
+    }
+
+    /*
+     * Before a newly opened site is connected, record one member of each distinct component it is about to
+     * join, which are those of its open neighbors. Returns the number recorded.
+     */
+    private int findAdjacentComponents(int numAdjacent) {
+        int count = 0;
+        for (int i = 0; i < numAdjacent; ++i) {
+            if ((siteState[adjacent[i]] & OPEN) != 0) {
+                count = recordAdjacentComponent(adjacent[i], count);
+            }
+        }
+        return count;
+    }
+
+    private int recordAdjacentComponent(int member, int count) {
+        int root = connections.find(member);
+        for (int i = 0; i < count; ++i) {
+            if (adjacentRoots[i] == root) {
+                return count;
+            }
+        }
+        adjacentMembers[count] = member;
+        adjacentRoots[count] = root;
+        adjacentWasFull[count] = (siteState[root] & TOUCHES_TOP) != 0;
+        return count + 1;
+    }
+
+    /*
+     * Report the newly opened site and, if it is full now, every site of the adjacent components that was
+     * not full before. Those components are then spliced into the list of the site's new component.
+     */
+    private void notifyOpened(int site, int numComponents) {
+        siteOpened(site);
+        if ((siteState[connections.find(site)] & TOUCHES_TOP) != 0) {
+            siteFilled(site);
+            for (int i = 0; i < numComponents; ++i) {
+                if (!adjacentWasFull[i]) {
+                    notifyFilled(adjacentMembers[i]);
+                }
+            }
+        }
+        for (int i = 0; i < numComponents; ++i) {
+            spliceComponents(site, adjacentMembers[i]);
+        }
+    }
+
+    private void notifyFilled(int member) {
+        int site = member;
+        do {
+            siteFilled(site);
+            site = nextInComponent[site];
+        } while (site != member);
+    }
+}
@@ -0,0 +1,436 @@
+package Percolation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Percolation on a ROWS by COLS grid kept entirely outside the Java heap, for grids with billions of sites.
+ * Sites are numbered with longs, row * cols + col, and every site takes 9 bytes: a long holding its parent in a
+ * union find and a byte holding its state. Both live in fixed size segments of direct or memory-mapped buffers,
+ * so the garbage collector never scans or copies them however large the grid is.
+ * <p>
+ * There are no virtual sites and no second union find. Instead the state byte of the root of every component
+ * records whether the component touches the top row and whether it touches the bottom row, and the two flags
+ * are combined when components are merged. A site is full when the root of its component touches the top row,
+ * which cannot be caused by backwash, and the grid percolates as soon as some component touches both rows.
+ * The remaining bits of the state byte hold the rank of a root for union by rank; finds use path halving.
+ * <p>
+ * Given a file, the grid is memory-mapped onto it and can be closed and opened again later to continue where
+ * it left off. Changes to the grid reach the file even if the process dies before flush() or close(), so the
+ * header is marked dirty before the first change after each flush and only marked clean again by flush(). A
+ * file found dirty, for example after a crash, is recovered by reconnecting its open sites and recounting them.
+ * Without one, the segments are direct buffers, which count against -XX:MaxDirectMemorySize and
+ * are only freed once this object has been garbage collected.
+ */
+public class OffHeapPercolation implements AutoCloseable {
+    private static final byte OPEN = 1;
+    private static final byte TOUCHES_TOP = 2;
+    private static final byte TOUCHES_BOTTOM = 4;
+    private static final int RANK_SHIFT = 3;
+    private static final int MAX_RANK = 31;
+    private static final byte FLAGS = OPEN | TOUCHES_TOP | TOUCHES_BOTTOM;
+
+    /** Sites per segment. A segment of parents is 1 GB, a segment of states 128 MB. */
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private static final int MAGIC = 0x50434f48;
+    /**
+     * The header holds the magic number, rows, cols, the clean flag, the number of open sites and the percolated
+     * flag. It is padded so that the segments of parents that follow it start aligned.
+     */
+    private static final int HEADER_BYTES = 64;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int OPEN_SITES_OFFSET = 16;
+    private static final int PERCOLATED_OFFSET = 24;
+
+    private int rows;
+    private int cols;
+    private long numSites;
+    private long numOpenSites;
+    private boolean percolated;
+    /** parents[segment].get(index) = the parent of an open site; undefined for blocked sites. */
+    private LongBuffer[] parents;
+    private ByteBuffer[] states;
+    /** The mapped file, or null if the grid is held in direct buffers. */
+    private FileChannel file;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] mapped;
+    /** True if the grid has changed since the header was last marked clean. */
+    private boolean dirty;
+
+    /**
+     * Creates an empty grid held in direct buffers.
+     */
+    public OffHeapPercolation(int rows, int cols) {
+        this(rows, cols, null);
+    }
+
+    /**
+     * Creates a grid memory-mapped onto the given file. If the file already holds a grid of the same size, it is
+     * continued where it was left, after recovering it if it was not flushed since its last change; otherwise the file is created or overwritten with an
+     * empty grid.
+     *
+     * @param file the file to map, or null to use direct buffers
+     * @throws UncheckedIOException if the file cannot be mapped
+     */
+    public OffHeapPercolation(int rows, int cols, Path file) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Invalid args to OffHeapPercolation Constructor");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        numSites = (long) rows * cols;
+        int numSegments = (int) ((numSites + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        parents = new LongBuffer[numSegments];
+        states = new ByteBuffer[numSegments];
+        if (file == null) {
+            for (int segment = 0; segment < numSegments; ++segment) {
+                int length = segmentLength(segment);
+                parents[segment] = ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+                states[segment] = ByteBuffer.allocateDirect(length);
+            }
+        } else {
+            try {
+                mapFile(file, numSegments);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map " + file, e);
+            }
+        }
+    }
+
+    private int segmentLength(int segment) {
+        return (int) Math.min(1L << SEGMENT_SHIFT, numSites - ((long) segment << SEGMENT_SHIFT));
+    }
+
+    /*
+     * The file holds the header, then every segment of states, then every segment of parents.
+     */
+    private void mapFile(Path path, int numSegments) throws IOException {
+        boolean exists = Files.exists(path);
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = HEADER_BYTES + numSites * (1 + Long.BYTES);
+        boolean resume = exists && file.size() == size;
+        if (file.size() > size) {
+            file.truncate(size);
+        }
+        header = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        resume = resume && header.getInt(0) == MAGIC && header.getInt(4) == rows && header.getInt(8) == cols;
+        mapped = new MappedByteBuffer[2 * numSegments];
+        long position = HEADER_BYTES;
+        for (int segment = 0; segment < numSegments; ++segment) {
+            int length = segmentLength(segment);
+            mapped[segment] = file.map(FileChannel.MapMode.READ_WRITE, position, length);
+            states[segment] = mapped[segment];
+            position += length;
+        }
+        for (int segment = 0; segment < numSegments; ++segment) {
+            int length = segmentLength(segment);
+            mapped[numSegments + segment] = file.map(FileChannel.MapMode.READ_WRITE, position,
+                    (long) length * Long.BYTES);
+            parents[segment] = mapped[numSegments + segment].order(ByteOrder.nativeOrder()).asLongBuffer();
+            position += (long) length * Long.BYTES;
+        }
+        if (resume && header.get(CLEAN_OFFSET) != 0) {
+            numOpenSites = header.getLong(OPEN_SITES_OFFSET);
+            percolated = header.get(PERCOLATED_OFFSET) != 0;
+        } else if (resume) {
+            recover();
+            flush();
+        } else {
+            reset();
+            header.putInt(0, MAGIC);
+            header.putInt(4, rows);
+            header.putInt(8, cols);
+            flush();
+        }
+    }
+
+    /*
+     * Rebuild a grid whose process died between flushes. An open or union may have been cut short, leaving a
+     * site open but not connected to its neighbors, or a root without the edge flags of a component linked
+     * under it. So every open site is connected again to its open neighbors, the edges are added again to the
+     * root of every open site in the top and bottom rows, and the open sites are counted.
+     */
+    private void recover() {
+        numOpenSites = 0;
+        percolated = false;
+        for (long site = 0; site < numSites; ++site) {
+            if ((state(site) & OPEN) == 0) {
+                continue;
+            }
+            numOpenSites += 1;
+            if (site % cols < cols - 1) {
+                connect(site, site + 1);
+            }
+            if (site / cols < rows - 1) {
+                connect(site, site + cols);
+            }
+        }
+        for (int col = 0; col < cols; ++col) {
+            addEdge(col, TOUCHES_TOP);
+            addEdge((long) (rows - 1) * cols + col, TOUCHES_BOTTOM);
+        }
+    }
+
+    private void addEdge(long site, byte edge) {
+        if ((state(site) & OPEN) == 0) {
+            return;
+        }
+        long root = find(site);
+        byte state = (byte) (state(root) | edge);
+        setState(root, state);
+        if ((state & FLAGS) == FLAGS) {
+            percolated = true;
+        }
+    }
+
+    /*
+     * Mark the header dirty before the first change to a mapped grid since it was last flushed.
+     */
+    private void markDirty() {
+        dirty = true;
+        if (file != null) {
+            header.put(CLEAN_OFFSET, (byte) 0);
+            header.force();
+        }
+    }
+
+    private void checkBounds(int row, int col) {
+        if (row >= rows || row < 0) {
+            throw new IndexOutOfBoundsException("Invalid row for grid of " + rows + " rows: " + row);
+        }
+        if (col >= cols || col < 0) {
+            throw new IndexOutOfBoundsException("Invalid column for grid of " + cols + " columns: " + col);
+        }
+    }
+
+    private byte state(long site) {
+        return states[(int) (site >>> SEGMENT_SHIFT)].get((int) (site & SEGMENT_MASK));
+    }
+
+    private void setState(long site, byte state) {
+        states[(int) (site >>> SEGMENT_SHIFT)].put((int) (site & SEGMENT_MASK), state);
+    }
+
+    private long parent(long site) {
+        return parents[(int) (site >>> SEGMENT_SHIFT)].get((int) (site & SEGMENT_MASK));
+    }
+
+    private void setParent(long site, long parent) {
+        parents[(int) (site >>> SEGMENT_SHIFT)].put((int) (site & SEGMENT_MASK), parent);
+    }
+
+    /**
+     * @return the number of sites in the grid.
+     */
+    public long numberOfSites() {
+        return numSites;
+    }
+
+    /**
+     * @return the number of sites that have been opened.
+     */
+    public long numberOfOpenSites() {
+        return numOpenSites;
+    }
+
+    /**
+     * @return true if the site at ROW, COL has been opened.
+     */
+    public boolean isOpen(int row, int col) {
+        checkBounds(row, col);
+        return (state((long) row * cols + col) & OPEN) != 0;
+    }
+
+    /**
+     * @return true if the site at ROW, COL is connected to the top row by open sites.
+     */
+    public boolean isFull(int row, int col) {
+        checkBounds(row, col);
+        long site = (long) row * cols + col;
+        return (state(site) & OPEN) != 0 && (state(find(site)) & TOUCHES_TOP) != 0;
+    }
+
+    /**
+     * @return true if there is a path from the top row to the bottom row. Runs in constant time.
+     */
+    public boolean percolates() {
+        return percolated;
+    }
+
+    /**
+     * Opens the site at ROW, COL and connects it to each of its open neighbors.
+     * Do nothing if the site has already been opened.
+     */
+    public void open(int row, int col) {
+        checkBounds(row, col);
+        long site = (long) row * cols + col;
+        if ((state(site) & OPEN) != 0) {
+            return;
+        }
+        if (!dirty) {
+            markDirty();
+        }
+        numOpenSites += 1;
+        byte state = OPEN;
+        if (row == 0) {
+            state |= TOUCHES_TOP;
+        }
+        if (row == rows - 1) {
+            state |= TOUCHES_BOTTOM;
+        }
+        setParent(site, site);
+        setState(site, state);
+        if (state == FLAGS) {
+            percolated = true;
+        }
+        if (row > 0) {
+            connect(site, site - cols);
+        }
+        if (row < rows - 1) {
+            connect(site, site + cols);
+        }
+        if (col > 0) {
+            connect(site, site - 1);
+        }
+        if (col < cols - 1) {
+            connect(site, site + 1);
+        }
+    }
+
+    private void connect(long site, long other) {
+        if ((state(other) & OPEN) != 0) {
+            union(site, other);
+        }
+    }
+
+    private long find(long p) {
+        long parent = parent(p);
+        while (parent != p) {
+            long grandparent = parent(parent);
+            setParent(p, grandparent);    // path compression by halving
+            p = grandparent;
+            parent = parent(p);
+        }
+        return p;
+    }
+
+    /*
+     * Link the root of smaller rank under the root of larger rank and give the new root the edges touched
+     * by either component.
+     */
+    private void union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        byte stateP = state(rootP);
+        byte stateQ = state(rootQ);
+        int rankP = (stateP & 0xff) >>> RANK_SHIFT;
+        int rankQ = (stateQ & 0xff) >>> RANK_SHIFT;
+        byte edges = (byte) ((stateP | stateQ) & FLAGS);
+        if (edges == FLAGS) {
+            percolated = true;
+        }
+        if (rankP < rankQ) {
+            setParent(rootP, rootQ);
+            setState(rootQ, (byte) ((rankQ << RANK_SHIFT) | edges));
+        } else {
+            setParent(rootQ, rootP);
+            // five bits of rank allow components of up to 2^31 sites before ranks stop growing
+            int rank = rankP == rankQ ? Math.min(rankP + 1, MAX_RANK) : rankP;
+            setState(rootP, (byte) ((rank << RANK_SHIFT) | edges));
+        }
+    }
+
+    /**
+     * Blocks every site again. Only the state bytes are cleared; the parent of a site is set when it is opened.
+     */
+    public void reset() {
+        if (!dirty) {
+            markDirty();
+        }
+        byte[] zeros = new byte[1 << 16];
+        for (ByteBuffer segment : states) {
+            for (int index = 0; index < segment.capacity(); index += zeros.length) {
+                ByteBuffer block = segment.duplicate();
+                block.position(index);
+                block.put(zeros, 0, Math.min(zeros.length, segment.capacity() - index));
+            }
+        }
+        numOpenSites = 0;
+        percolated = false;
+    }
+
+    /**
+     * Writes the grid to its file, if it has one, so that it can be continued after this object is closed or
+     * the process ends. The header is only marked clean once everything else has been written.
+     */
+    public void flush() {
+        if (file == null) {
+            return;
+        }
+        header.putLong(OPEN_SITES_OFFSET, numOpenSites);
+        header.put(PERCOLATED_OFFSET, (byte) (percolated ? 1 : 0));
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+        header.put(CLEAN_OFFSET, (byte) 1);
+        header.force();
+        dirty = false;
+    }
+
+    /**
+     * Flushes the grid to its file, if it has one, and releases the file.
+     */
+    @Override
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        flush();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close grid file", e);
+        }
+    }
+
+    /**
+     * Opens random sites of a ROWS by COLS grid until it percolates and prints the fraction of open sites.
+     * Sites are drawn with replacement, as a permutation of billions of sites would not fit in the heap.
+     * <p>
+     * Usage: java Percolation.OffHeapPercolation [rows] [cols] (seed) (file)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.printf("Invalid arguments:\nUsage:\n\tjava OffHeapPercolation [rows] [cols] (seed) (file)\n");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        Path file = args.length > 3 ? Path.of(args[3]) : null;
+        SplittableRandom random = new SplittableRandom(seed);
+        long start = System.nanoTime();
+        try (OffHeapPercolation perc = new OffHeapPercolation(rows, cols, file)) {
+            while (!perc.percolates()) {
+                perc.open(random.nextInt(rows), random.nextInt(cols));
+            }
+            System.out.printf("Threshold: %.6f\nSeconds: %.3f\n",
+                    (double) perc.numberOfOpenSites() / perc.numberOfSites(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -1,74 +1,90 @@
 package Percolation;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.IntFunction;
 
 /**
- * Simulates percolation. A percolation object represents a 2 dimensional collection of Site objects.
+ * Simulates percolation. A percolation object represents a 2 dimensional grid of sites.
  * Each site is referred to as "open" when it is capable of connecting to other sites. A convenient metaphor
  * is the ground with a known width and depth arranged as a grid beneath a body of water.
  * We are able to "open" boxes (what I have named Sites) of this grid to allow the water above to flow through them.
  * The purpose of the Percolation class is to represent this grid of sites. The client of Percolation can then use it
  * to analyze statistical properties of the physical phenomena known as percolation.
+ * <p>
+ * The grid is N by N by default, but may have any number of rows and columns, for example to model a long
+ * thin channel. Each site is adjacent to the sites to its top, bottom, left and right. The work of opening
+ * sites and tracking connectivity is done by LatticePercolation; the site at ROW, COL has id row * cols + col.
  */
-public class Percolation {
-    /*
-     * An inner class for representing a single site in order to track whether the site is
-     * open and/or full. By default, each site is not open and therefore not full.
+public class Percolation extends LatticePercolation {
+    private int rows;
+    private int cols;
+    /** Notified when sites are opened or filled, or null if nobody is listening. */
+    private SiteListener listener;
+
+    public Percolation(int N) {
+        this(N, false);
+    }
+
+    public Percolation(int N, boolean scanBottomRow) {
+        this(N, scanBottomRow, WeightedQuickUnionPathCompressionUF::new);
+    }
+
+    public Percolation(int N, IntFunction<UnionFind> unionFindFactory) {
+        this(N, false, unionFindFactory);
+    }
+
+    /**
+     * @param N the width and height of the grid
+     * @param scanBottomRow if true, percolates() checks every site of the bottom row for fullness
+     *                      instead of reading a flag kept up to date as sites are opened. Kept for comparison.
+     * @param unionFindFactory creates the union find object tracking connectivity given a number of sites,
+     *                         e.g. {@code WeightedQuickUnionPathHalvingUF::new}. Defaults to weighted quick
+     *                         union with path compression.
      */
-    private class Site {
-        int col;
-        int row;
-        boolean isOpen;
-        boolean isFull;
-
-        Site(int c, int r) {
-            col = c;
-            row = r;
-            isOpen = false;
-            isFull = false;
-        }
+    public Percolation(int N, boolean scanBottomRow, IntFunction<UnionFind> unionFindFactory) {
+        this(checkSize(N), N, scanBottomRow, unionFindFactory);
     }
 
     /**
-     * A Quick union find object for determining whether given sites are connected.
+     * Creates a grid of ROWS by COLS sites. The system percolates when the top row is connected to the bottom row.
      */
-    private QuickUnionPathCompressionUF connections;
-    private Map<Integer, Site> siteMapping;
-    private int N;
-    private int numOpenSites;
+    public Percolation(int rows, int cols) {
+        this(rows, cols, false, WeightedQuickUnionPathCompressionUF::new);
+    }
 
-    public Percolation(int N) {
+    public Percolation(int rows, int cols, boolean scanBottomRow, IntFunction<UnionFind> unionFindFactory) {
+        super(countSites(rows, cols), cols, 4, scanBottomRow, unionFindFactory);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    private static int checkSize(int N) {
         if (N <= 0) {
             throw new IllegalArgumentException("N less than or equal to 0");
         }
-        this.N = N;
-        connections = new QuickUnionPathCompressionUF(N * N);
-        siteMapping = buildXyTo1DMapping(N);
-        numOpenSites = 0;
+        return N;
     }
 
-    private void checkBounds(int arg1, int arg2) {
-        if (arg1 >= N || arg1 < 0) {
-            throw new IndexOutOfBoundsException("Invalid index for grid of size " + N + ": " + arg1);
+    private void checkBounds(int row, int col) {
+        if (row >= rows || row < 0) {
+            throw new IndexOutOfBoundsException("Invalid row for grid of " + rows + " rows: " + row);
         }
-        if (arg2 >= N || arg2 < 0) {
-            throw new IndexOutOfBoundsException("Invalid index for grid of size " + N + ": " + arg2);
+        if (col >= cols || col < 0) {
+            throw new IndexOutOfBoundsException("Invalid column for grid of " + cols + " columns: " + col);
         }
     }
 
-    /*
-     * Build a mapping from integers to Site objects so that we can more easily locate
-     * the site at a given X, Y position.
+    /**
+     * @return the number of rows in the grid.
      */
-    private Map buildXyTo1DMapping(int n) {
-        HashMap<Integer, Site> result = new HashMap<>();
-        for (int i = 0; i < n; ++i) {
-            for (int j = 0; j < n; ++j) {
-                result.put(xyTo1D(i, j), new Site(i, j));
-            }
-        }
-        return result;
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns in the grid.
+     */
+    public int cols() {
+        return cols;
     }
 
     /**
@@ -80,7 +96,12 @@ public class Percolation {
      */
     public boolean isOpen(int row, int col) {
         checkBounds(row, col);
-        return siteMapping.get(xyTo1D(row, col)).isOpen;
+        return isOpenSite(xyTo1D(row, col));
+    }
+
+    @Override
+    public int[] dimensions() {
+        return new int[] {rows, cols};
     }
 
     /**
@@ -93,90 +114,73 @@ public class Percolation {
      */
     public boolean isFull(int row, int col) {
         checkBounds(row, col);
-        int siteId = xyTo1D(row, col);
-        Site currSite = siteMapping.get(siteId);
-        int parentId = connections.find(siteId);
-        if (currSite.isFull) {
-            siteMapping.get(parentId).isFull = true;
-            return true;
-        }
-        currSite.isFull = siteMapping.get(parentId).isFull;
-        return currSite.isFull;
-    }
-
-    /**
-     * @return the number of sites that have been opened.
-     */
-    public int numberOfOpenSites() {
-        return numOpenSites;
+        return isFullSite(xyTo1D(row, col));
     }
 
     /**
      * Opens the site at position ROW, COL. Checks for potential connections in the positions
      * to the top, bottom, left and right of the given site. If potential connections exits,
-     * connects those sites. If any of the sites connections are full, the given site is set to full.
-     * Do nothing if the site has already been opened.
+     * connects those sites. Do nothing if the site has already been opened.
      *
      * @param row The Y position of the site to process
      * @param col The X position of the site to process
      */
     public void open(int row, int col) {
         checkBounds(row, col);
-        int siteId = xyTo1D(row, col);
-        Site currSite = siteMapping.get(siteId);
-        if (currSite.isOpen) {
-            //System.out.println(row + " " + col + " already opened");
-            return;
-        }
-        numOpenSites += 1;
-        currSite.isOpen = true;
-        if (isInTopRow(row)) {
-            currSite.isFull = true;
-        }
-        connectAdjacentSites(row, col);
-        isFull(row, col);
+        openSite(xyTo1D(row, col));
     }
 
-    private boolean isInTopRow(int row) {
-        return row == 0;
+    /**
+     * @return the id of the site at ROW, COL, as used by openSite, isOpenSite and isFullSite.
+     */
+    public int siteOf(int row, int col) {
+        checkBounds(row, col);
+        return xyTo1D(row, col);
     }
 
-    private void connectAdjacentSites(int row, int col) {
-        int left = xyTo1D(row, col - 1);
-        int right = xyTo1D(row, col + 1);
-        int above = xyTo1D(row - 1, col);
-        int below = xyTo1D(row + 1, col);
-        int curr = xyTo1D(row, col);
-        if (row > 0 && siteMapping.get(above).isOpen) {
-            connections.union(curr, above);
+    @Override
+    protected int adjacentSites(int site, int[] adjacent) {
+        int row = site / cols;
+        int col = site - row * cols;
+        int count = 0;
+        if (row > 0) {
+            adjacent[count++] = site - cols;
         }
-        if (row < N - 1 && siteMapping.get(below).isOpen) {
-            connections.union(curr, below);
+        if (row < rows - 1) {
+            adjacent[count++] = site + cols;
         }
-        if (col > 0 && siteMapping.get(left).isOpen) {
-            connections.union(curr, left);
+        if (col > 0) {
+            adjacent[count++] = site - 1;
         }
-        if (col < N - 1 && siteMapping.get(right).isOpen) {
-            connections.union(curr, right);
+        if (col < cols - 1) {
+            adjacent[count++] = site + 1;
         }
+        return count;
     }
 
     /**
-     * Determines whether there is a path from the topmost row of the grid to the
-     * bottommost row of the grid.
+     * Registers a listener to be told about every site that is opened or filled from now on. Keeping track
+     * of which sites to report costs an extra int per site, which is only allocated once a listener is set.
      *
-     * @return true if there is a path from the topmost row of the grid to the bottommost row of the grid, else false.
+     * @param listener the listener to notify, or null to stop notifying
      */
-    public boolean percolates() {
-        int bottomRow = N - 1;
-        int currColumn = 0;
-        while (currColumn < N) {
-            if (isFull(bottomRow, currColumn)) {
-                return true;
-            }
-            currColumn += 1;
+    public void setSiteListener(SiteListener listener) {
+        this.listener = listener;
+        if (listener != null) {
+            enableNotifications();
+        } else {
+            disableNotifications();
         }
-        return false;
+    }
+
+    @Override
+    protected void siteOpened(int site) {
+        listener.siteOpened(site / cols, site % cols);
+    }
+
+    @Override
+    protected void siteFilled(int site) {
+        listener.siteFilled(site / cols, site % cols);
     }
 
     /*
@@ -184,6 +188,6 @@ public class Percolation {
      * xyTo1D(3, 4) equals (3 * N) + 4.
      */
     private int xyTo1D(int row, int col) {
-        return (row * N) + col;
+        return (row * cols) + col;
     }
 }
@@ -0,0 +1,108 @@
+package Percolation;
+
+import java.util.function.IntFunction;
+
+/**
+ * Simulates percolation in a 3 dimensional box of LAYERS by ROWS by COLS sites. Each site is adjacent to the six
+ * sites next to it along the three axes. Water enters through layer 0 and the system percolates once it can
+ * reach the last layer. The site at LAYER, ROW, COL has id (layer * rows + row) * cols + col.
+ */
+public class Percolation3D extends LatticePercolation {
+    private int layers;
+    private int rows;
+    private int cols;
+    /** The number of sites in one layer. */
+    private int layerSize;
+
+    public Percolation3D(int layers, int rows, int cols) {
+        this(layers, rows, cols, false, WeightedQuickUnionPathCompressionUF::new);
+    }
+
+    /**
+     * @param scanBottomLayer if true, percolates() checks every site of the last layer for fullness
+     *                        instead of reading a flag kept up to date as sites are opened
+     * @param unionFindFactory creates the union find object tracking connectivity given a number of sites
+     */
+    public Percolation3D(int layers, int rows, int cols, boolean scanBottomLayer,
+                         IntFunction<UnionFind> unionFindFactory) {
+        super(countSites(layers, rows, cols), countSites(rows, cols), 6, scanBottomLayer, unionFindFactory);
+        this.layers = layers;
+        this.rows = rows;
+        this.cols = cols;
+        layerSize = rows * cols;
+    }
+
+    private void checkBounds(int layer, int row, int col) {
+        if (layer >= layers || layer < 0) {
+            throw new IndexOutOfBoundsException("Invalid layer for lattice of " + layers + " layers: " + layer);
+        }
+        if (row >= rows || row < 0) {
+            throw new IndexOutOfBoundsException("Invalid row for lattice of " + rows + " rows: " + row);
+        }
+        if (col >= cols || col < 0) {
+            throw new IndexOutOfBoundsException("Invalid column for lattice of " + cols + " columns: " + col);
+        }
+    }
+
+    /**
+     * @return true if the site at LAYER, ROW, COL has been opened.
+     */
+    public boolean isOpen(int layer, int row, int col) {
+        checkBounds(layer, row, col);
+        return isOpenSite(toId(layer, row, col));
+    }
+
+    /**
+     * @return true if the site at LAYER, ROW, COL is connected to layer 0 by open sites.
+     */
+    public boolean isFull(int layer, int row, int col) {
+        checkBounds(layer, row, col);
+        return isFullSite(toId(layer, row, col));
+    }
+
+    /**
+     * Opens the site at LAYER, ROW, COL and connects it to each of its open neighbors.
+     * Do nothing if the site has already been opened.
+     */
+    public void open(int layer, int row, int col) {
+        checkBounds(layer, row, col);
+        openSite(toId(layer, row, col));
+    }
+
+    @Override
+    protected int adjacentSites(int site, int[] adjacent) {
+        int layer = site / layerSize;
+        int inLayer = site - layer * layerSize;
+        int row = inLayer / cols;
+        int col = inLayer - row * cols;
+        int count = 0;
+        if (layer > 0) {
+            adjacent[count++] = site - layerSize;
+        }
+        if (layer < layers - 1) {
+            adjacent[count++] = site + layerSize;
+        }
+        if (row > 0) {
+            adjacent[count++] = site - cols;
+        }
+        if (row < rows - 1) {
+            adjacent[count++] = site + cols;
+        }
+        if (col > 0) {
+            adjacent[count++] = site - 1;
+        }
+        if (col < cols - 1) {
+            adjacent[count++] = site + 1;
+        }
+        return count;
+    }
+
+    @Override
+    public int[] dimensions() {
+        return new int[] {layers, rows, cols};
+    }
+
+    private int toId(int layer, int row, int col) {
+        return (layer * rows + row) * cols + col;
+    }
+}
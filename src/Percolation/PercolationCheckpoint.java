@@ -0,0 +1,258 @@
+package Percolation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Saves the thresholds of a long PercolationStats run as it goes, so that a run which is killed can pick up
+ * where it left off instead of starting over. The checkpoint is a directory holding one file per worker thread,
+ * so workers never wait on each other to save. Each file starts with a description of the run: its seed, its
+ * number of tests, the kind and dimensions of its lattice and the kinds of its trial and random stream. One
+ * 12 byte record per finished test follows: the test number and its threshold.
+ * <p>
+ * Nothing about the random streams needs saving: the random sites of a test are derived from the seed and the
+ * test number alone, so a resumed run simply runs the tests that have no record yet and gets exactly the
+ * thresholds an uninterrupted run would have. A resumed run must match the saved description, so that the
+ * thresholds of a different experiment are never mixed in, and may use a different number of threads.
+ */
+public class PercolationCheckpoint {
+    private static final int MAGIC = 0x50434b50;
+    private static final int VERSION = 2;
+    private static final int RECORD_BYTES = 4 + 8;
+    private static final String SUFFIX = ".ckpt";
+
+    private Path directory;
+    /** The number of tests a worker finishes between saves. */
+    private int saveInterval;
+
+    /**
+     * @param directory the directory holding the checkpoint, created if it does not exist
+     * @param saveInterval the number of tests each worker finishes between writing its results to disk
+     */
+    public PercolationCheckpoint(Path directory, int saveInterval) {
+        if (saveInterval <= 0) {
+            throw new IllegalArgumentException("Save interval less than or equal to 0");
+        }
+        this.directory = directory;
+        this.saveInterval = saveInterval;
+    }
+
+    /**
+     * Reads the thresholds of every test saved so far into THRESHOLDS and marks those tests in DONE. A record cut
+     * short by a crash is dropped from its file so that new records can be appended after it.
+     *
+     * @return the number of tests read
+     * @throws IOException if a checkpoint file belongs to a run with a different description
+     */
+    int load(Run run, double[] thresholds, boolean[] done) throws IOException {
+        Files.createDirectories(directory);
+        int loaded = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "worker-*" + SUFFIX)) {
+            for (Path file : files) {
+                loaded += loadFile(file, run, thresholds, done);
+            }
+        }
+        return loaded;
+    }
+
+    private int loadFile(Path file, Run run, double[] thresholds, boolean[] done) throws IOException {
+        long size = Files.size(file);
+        int headerBytes = run.header().length;
+        int loaded = 0;
+        long records = (size - headerBytes) / RECORD_BYTES;
+        boolean tornHeader = false;
+        try (InputStream in = Files.newInputStream(file);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            try {
+                checkHeader(file, data, run);
+            } catch (EOFException e) {
+                tornHeader = true;
+                records = 0;
+            }
+            for (long i = 0; i < records; ++i) {
+                int testNumber = data.readInt();
+                double threshold = data.readDouble();
+                if (testNumber < 0 || testNumber >= run.T) {
+                    throw new IOException("Test number " + testNumber + " out of range in " + file);
+                }
+                if (!done[testNumber]) {
+                    done[testNumber] = true;
+                    thresholds[testNumber] = threshold;
+                    loaded += 1;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Checkpoint file ends early: " + file, e);
+        }
+        if (tornHeader) {
+            // the header is saved before any record, so a header cut short by a crash is all there is
+            Files.delete(file);
+            return 0;
+        }
+        long whole = headerBytes + records * RECORD_BYTES;
+        if (whole != size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(whole);
+            }
+        }
+        return loaded;
+    }
+
+    private static void checkHeader(Path file, DataInputStream data, Run run) throws IOException {
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a checkpoint file: " + file);
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + " in " + file);
+        }
+        Run saved = new Run(data.readLong(), data.readInt(), data.readUTF(), data.readUTF(), data.readUTF());
+        if (!saved.equals(run)) {
+            throw new IOException("Checkpoint " + file + " belongs to a run of " + saved + ", not " + run);
+        }
+    }
+
+    /**
+     * Opens the checkpoint file of the given worker for appending, writing its header if it is new.
+     */
+    Writer writer(int worker, Run run) throws IOException {
+        Path file = directory.resolve("worker-" + worker + SUFFIX);
+        FileOutputStream out = new FileOutputStream(file.toFile(), true);
+        Writer writer = new Writer(out, saveInterval);
+        if (out.getChannel().size() == 0) {
+            writer.data.write(run.header());
+            writer.save();
+        }
+        return writer;
+    }
+
+    /**
+     * What a run that saves to a checkpoint must have in common with the run that resumes from it.
+     */
+    static class Run {
+        private long seed;
+        private int T;
+        /** The kind of lattice and its dimensions, e.g. Percolation 100x200. */
+        private String lattice;
+        private String trial;
+        private String random;
+
+        Run(long seed, int T, LatticePercolation lattice, PercolationTrial trial, TrialRandom random) {
+            this(seed, T, lattice.getClass().getSimpleName() + " " + dimensions(lattice.dimensions()),
+                 trial.getClass().getSimpleName(), random.getClass().getSimpleName());
+        }
+
+        private Run(long seed, int T, String lattice, String trial, String random) {
+            this.seed = seed;
+            this.T = T;
+            this.lattice = lattice;
+            this.trial = trial;
+            this.random = random;
+        }
+
+        private static String dimensions(int[] dimensions) {
+            StringBuilder out = new StringBuilder();
+            for (int dimension : dimensions) {
+                if (out.length() > 0) {
+                    out.append('x');
+                }
+                out.append(dimension);
+            }
+            return out.toString();
+        }
+
+        /*
+         * The header of a checkpoint file of this run, which is also what checkHeader reads back.
+         */
+        private byte[] header() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(bytes)) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(seed);
+                data.writeInt(T);
+                data.writeUTF(lattice);
+                data.writeUTF(trial);
+                data.writeUTF(random);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Run)) {
+                return false;
+            }
+            Run run = (Run) other;
+            return seed == run.seed && T == run.T && lattice.equals(run.lattice) && trial.equals(run.trial)
+                    && random.equals(run.random);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(seed, T, lattice, trial, random);
+        }
+
+        @Override
+        public String toString() {
+            return T + " tests with seed " + seed + " on " + lattice + " by " + trial + " from " + random;
+        }
+    }
+
+    /**
+     * Appends the results of one worker to its checkpoint file, forcing them to disk every saveInterval tests.
+     */
+    static class Writer implements AutoCloseable {
+        private FileOutputStream file;
+        private DataOutputStream data;
+        private int saveInterval;
+        private int unsaved;
+
+        private Writer(FileOutputStream file, int saveInterval) {
+            this.file = file;
+            this.data = new DataOutputStream(new BufferedOutputStream(file));
+            this.saveInterval = saveInterval;
+        }
+
+        void record(int testNumber, double threshold) throws IOException {
+            data.writeInt(testNumber);
+            data.writeDouble(threshold);
+            unsaved += 1;
+            if (unsaved >= saveInterval) {
+                save();
+            }
+        }
+
+        /*
+         * Flush buffered records and wait until they are on disk, so that they survive the machine going away
+         * and not just the process.
+         */
+        private void save() throws IOException {
+            data.flush();
+            file.getChannel().force(false);
+            unsaved = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                save();
+            } finally {
+                data.close();
+            }
+        }
+    }
+}
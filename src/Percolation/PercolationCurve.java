@@ -0,0 +1,173 @@
+package Percolation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estimates the probability that a grid percolates as a function of p, the probability that each site (or,
+ * for bond percolation, each bond) is open. For every p in a list, T random grids are generated and labeled
+ * with StripPercolation and the fraction that percolates is reported. Where PercolationStats measures the
+ * threshold of each grid, this measures the whole curve, whose steepness shows how sharp the transition is.
+ * <p>
+ * Grid k is drawn from the seed PercolationStats.testSeed(seed, k) for every p, so each grid only gains open
+ * sites as p grows and the estimated curve never decreases. Grids are labeled on worker threads sharing one
+ * pool, each worker reusing a single threaded StripPercolation.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Percolation.PercolationCurve [N or ROWSxCOLS] [tests per p] [lowest p] [highest p] [number of p values]
+ *                                   (seed) (threads) (site|bond)
+ * </pre>
+ * which prints one CSV line per p.
+ */
+public class PercolationCurve {
+    /** The scaling factor for calculating the confidence interval. */
+    private static final double CONFIDENCE_SCALING_FACTOR = 1.96;
+
+    private double[] ps;
+    private int T;
+    /** percolated[i] = the number of the T grids at probability ps[i] that percolate. */
+    private int[] percolated;
+
+    /**
+     * @param rows the number of rows of every grid
+     * @param cols the number of columns of every grid
+     * @param ps the probabilities to test
+     * @param T the number of grids to test at each probability
+     * @param seed the base seed the grids are derived from
+     * @param threads the number of worker threads to use
+     * @param bonds if true, test bond percolation instead of site percolation
+     */
+    public PercolationCurve(int rows, int cols, double[] ps, int T, long seed, int threads, boolean bonds) {
+        if (rows <= 0 || cols <= 0 || ps.length == 0 || T <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Invalid args to PercolationCurve Constructor");
+        }
+        this.ps = ps.clone();
+        this.T = T;
+        percolated = new int[ps.length];
+        runTests(rows, cols, seed, threads, bonds);
+    }
+
+    /*
+     * Work item w tests grid w % T at probability ps[w / T]. Each worker counts into its own array, which are
+     * added up at the end.
+     */
+    private void runTests(int rows, int cols, long seed, int threads, boolean bonds) {
+        AtomicInteger nextItem = new AtomicInteger();
+        long numItems = (long) ps.length * T;
+        if (numItems > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many tests: " + numItems);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                workers.add(pool.submit(() -> {
+                    int[] counts = new int[ps.length];
+                    try (StripPercolation grid = new StripPercolation(rows, cols, 1)) {
+                        int item;
+                        while ((item = nextItem.getAndIncrement()) < numItems) {
+                            int pIndex = item / T;
+                            long gridSeed = PercolationStats.testSeed(seed, item % T);
+                            boolean percolates = bonds ? grid.bondPercolatesAt(ps[pIndex], gridSeed)
+                                                       : grid.percolatesAt(ps[pIndex], gridSeed);
+                            if (percolates) {
+                                counts[pIndex] += 1;
+                            }
+                        }
+                    }
+                    return counts;
+                }));
+            }
+            for (Future<int[]> worker : workers) {
+                int[] counts = worker.get();
+                for (int i = 0; i < ps.length; ++i) {
+                    percolated[i] += counts[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tests", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A test failed to run", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of probabilities tested.
+     */
+    public int size() {
+        return ps.length;
+    }
+
+    /**
+     * @return the i-th probability tested.
+     */
+    public double p(int i) {
+        return ps[i];
+    }
+
+    /**
+     * @return the fraction of grids at the i-th probability that percolate.
+     */
+    public double probability(int i) {
+        return (double) percolated[i] / T;
+    }
+
+    /** Low endpoint of the 95% confidence interval of the i-th fraction, by the normal approximation. */
+    public double confidenceLo(int i) {
+        return Math.max(0.0, probability(i) - CONFIDENCE_SCALING_FACTOR * standardError(i));
+    }
+
+    /** High endpoint of the 95% confidence interval of the i-th fraction, by the normal approximation. */
+    public double confidenceHi(int i) {
+        return Math.min(1.0, probability(i) + CONFIDENCE_SCALING_FACTOR * standardError(i));
+    }
+
+    private double standardError(int i) {
+        double probability = probability(i);
+        return Math.sqrt(probability * (1 - probability) / T);
+    }
+
+    /**
+     * @return the curve as CSV with a header line.
+     */
+    public String toCsv() {
+        StringBuilder out = new StringBuilder("p,tests,percolated,probability,confidenceLo,confidenceHi\n");
+        for (int i = 0; i < ps.length; ++i) {
+            out.append(String.format(Locale.ROOT, "%.6f,%d,%d,%.6f,%.6f,%.6f\n", ps[i], T, percolated[i],
+                    probability(i), confidenceLo(i), confidenceHi(i)));
+        }
+        return out.toString();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.out.printf("Invalid arguments:\nUsage:\n\tjava PercolationCurve [N or ROWSxCOLS] [tests per p] [lowest p] [highest p] [number of p values] (seed) (threads) (site|bond)\n");
+            return;
+        }
+        String[] dimensions = args[0].split("x");
+        int rows = Integer.parseInt(dimensions[0]);
+        int cols = dimensions.length > 1 ? Integer.parseInt(dimensions[1]) : rows;
+        int T = Integer.parseInt(args[1]);
+        double lo = Double.parseDouble(args[2]);
+        double hi = Double.parseDouble(args[3]);
+        int steps = Integer.parseInt(args[4]);
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        boolean bonds = args.length > 7 && args[7].equals("bond");
+        double[] ps = new double[steps];
+        for (int i = 0; i < steps; ++i) {
+            ps[i] = steps == 1 ? lo : lo + (hi - lo) * i / (steps - 1);
+        }
+        System.out.print(new PercolationCurve(rows, cols, ps, T, seed, threads, bonds).toCsv());
+    }
+}
@@ -0,0 +1,176 @@
+package Percolation;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+import javax.imageio.ImageIO;
+
+/******************************************************************************
+ *  Compilation:  javac Percolation.PercolationImageExporter.java
+ *  Execution:    java Percolation.PercolationImageExporter input.txt prefix [frames] [pixelsPerSite]
+ *  Dependencies: Percolation.Percolation.java Percolation.SiteSequence.java
+ *
+ *  A headless counterpart to PercolationVisualizer that writes PNG images
+ *  instead of drawing in a window, so it runs without a display and as fast
+ *  as the sites can be read. Reads the same input files (text or binary
+ *  SiteTrace) and writes prefix-STEP.png
+ *
+ *    - every K opens, if frames is a number K (default: the final state only)
+ *    - after each of the listed steps, if frames is a comma separated list
+ *      of 1-based steps such as 100,2000,
+ *    - and always after the last step.
+ *
+ *  The colors are those of PercolationVisualizer: full sites in light blue,
+ *  open sites in white and blocked sites in black, with site (0, 0) in the
+ *  upper left-hand corner. Every site is a square of pixelsPerSite pixels
+ *  (default 1, so one pixel per site).
+ *
+ *  The exporter listens to the sites being opened and filled and paints each
+ *  change straight into the pixels of a single image, which is encoded as is
+ *  for every frame; nothing is redrawn or queried between frames.
+ *
+ ******************************************************************************/
+public class PercolationImageExporter implements SiteListener {
+    // blocked sites stay the black that a new image starts out as
+    private static final int OPEN = 0xffffff;
+    /** StdDraw.BOOK_LIGHT_BLUE. */
+    private static final int FULL = 0x67c6f3;
+
+    private Percolation perc;
+    private int N;
+    private int pixelsPerSite;
+    /** The black border left around each site, as between the squares of PercolationVisualizer. */
+    private int border;
+    private BufferedImage image;
+    /** The pixels of image, row by row. */
+    private int[] pixels;
+
+    /**
+     * Creates an exporter for the given grid and registers it as the grid's site listener.
+     *
+     * @param pixelsPerSite the width and height of each site in the image
+     */
+    public PercolationImageExporter(Percolation perc, int N, int pixelsPerSite) {
+        if (N <= 0 || pixelsPerSite <= 0 || (long) N * pixelsPerSite * N * pixelsPerSite > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid args to PercolationImageExporter Constructor");
+        }
+        this.perc = perc;
+        this.N = N;
+        this.pixelsPerSite = pixelsPerSite;
+        border = pixelsPerSite / 20;
+        image = new BufferedImage(N * pixelsPerSite, N * pixelsPerSite, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int row = 0; row < N; row++) {
+            for (int col = 0; col < N; col++) {
+                if (perc.isFull(row, col)) {
+                    paint(row, col, FULL);
+                } else if (perc.isOpen(row, col)) {
+                    paint(row, col, OPEN);
+                }
+            }
+        }
+        perc.setSiteListener(this);
+    }
+
+    @Override
+    public void siteOpened(int row, int col) {
+        paint(row, col, OPEN);
+    }
+
+    @Override
+    public void siteFilled(int row, int col) {
+        paint(row, col, FULL);
+    }
+
+    private void paint(int row, int col, int color) {
+        int width = N * pixelsPerSite;
+        int x = col * pixelsPerSite + border;
+        int y = row * pixelsPerSite + border;
+        int size = pixelsPerSite - 2 * border;
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(pixels, (y + i) * width + x, (y + i) * width + x + size, color);
+        }
+    }
+
+    /**
+     * @return the image of the grid in its current state. It is painted over as the grid changes, so callers
+     * that keep it must copy it.
+     */
+    public BufferedImage image() {
+        return image;
+    }
+
+    /**
+     * Writes the grid in its current state to the given file as a PNG.
+     */
+    public void write(File file) throws IOException {
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /*
+     * Replays the sequence and writes a frame after every step for which isFrame returns true, and after the
+     * last step. Returns the number of frames written.
+     */
+    private static int export(SiteSequence in, String prefix, int pixelsPerSite, IntPredicate isFrame)
+            throws IOException {
+        int N = in.gridSize();
+        Percolation perc = new Percolation(N);
+        PercolationImageExporter exporter = new PercolationImageExporter(perc, N, pixelsPerSite);
+        int step = 0;
+        int lastFrame = -1;
+        int frames = 0;
+        while (in.next()) {
+            perc.open(in.row(), in.col());
+            step += 1;
+            if (isFrame.test(step)) {
+                exporter.write(frameFile(prefix, step));
+                lastFrame = step;
+                frames += 1;
+            }
+        }
+        if (lastFrame != step) {
+            exporter.write(frameFile(prefix, step));
+            frames += 1;
+        }
+        return frames;
+    }
+
+    private static File frameFile(String prefix, int step) {
+        return new File(String.format("%s-%08d.png", prefix, step));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.printf("Invalid arguments:\nUsage:\n\tjava PercolationImageExporter [input] [output prefix] (opens per frame or step,step,...) (pixels per site)\n");
+            return;
+        }
+        System.setProperty("java.awt.headless", "true");
+        String filename = args[0];
+        String prefix = args[1];
+        IntPredicate isFrame = step -> false;
+        if (args.length > 2 && args[2].contains(",")) {
+            int[] steps = Arrays.stream(args[2].split(",")).filter(s -> !s.isEmpty())
+                    .mapToInt(Integer::parseInt).sorted().toArray();
+            isFrame = step -> Arrays.binarySearch(steps, step) >= 0;
+        } else if (args.length > 2) {
+            int opensPerFrame = Integer.parseInt(args[2]);
+            if (opensPerFrame <= 0) {
+                throw new IllegalArgumentException("opensPerFrame must be positive");
+            }
+            isFrame = step -> step % opensPerFrame == 0;
+        }
+        int pixelsPerSite = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long start = System.nanoTime();
+        int frames;
+        try (SiteSequence in = SiteSequence.open(filename)) {
+            frames = export(in, prefix, pixelsPerSite, isFrame);
+        }
+        System.out.printf("Wrote %d frames in %.3f ms\n", frames, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,46 @@
+package Percolation;
+
+/**
+ * Receives an event for every operation on the hot paths of a lattice and its union find objects, for working
+ * out why a run is slow. Lattices and union finds report to NONE unless told otherwise. NONE does nothing, so
+ * once the JIT has inlined its empty methods the events and the work of measuring them disappear from the
+ * compiled code.
+ * <p>
+ * CountingMetrics is the implementation that actually counts.
+ */
+public interface PercolationMetrics {
+    /** Ignores every event. */
+    PercolationMetrics NONE = new PercolationMetrics() {
+    };
+
+    /**
+     * Called by every find of a union find.
+     *
+     * @param depth the number of links followed from the site to its root
+     * @param compressed the number of links rewritten to shorten the path
+     */
+    default void found(int depth, int compressed) {
+    }
+
+    /**
+     * Called by every union of a union find.
+     *
+     * @param merged false if the two sites were already in the same component
+     */
+    default void united(boolean merged) {
+    }
+
+    /**
+     * Called by every call to open a site of a lattice.
+     *
+     * @param redundant true if the site was already open
+     */
+    default void opened(boolean redundant) {
+    }
+
+    /**
+     * Called by every call to percolates() on a lattice.
+     */
+    default void percolatesCalled() {
+    }
+}
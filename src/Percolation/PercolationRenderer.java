@@ -0,0 +1,123 @@
+package Percolation;
+
+import java.awt.Font;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+/**
+ * Draws a Percolation object incrementally. The renderer listens to the sites being opened and filled and
+ * only redraws the squares whose state changed since the last frame, instead of redrawing and querying all
+ * N * N sites every time. Uses the same colors and layout as PercolationVisualizer.draw.
+ */
+public class PercolationRenderer implements SiteListener {
+    private static final byte BLOCKED = 0;
+    private static final byte OPEN = 1;
+    private static final byte FULL = 2;
+    /** Set on a site's state while it is waiting in the dirty list. */
+    private static final byte DIRTY = 4;
+
+    private Percolation perc;
+    private int N;
+    /** The state to draw each site in, indexed by row * N + col. */
+    private byte[] siteState;
+    /** The sites to redraw in the next frame. */
+    private int[] dirty;
+    private int numDirty;
+
+    /**
+     * Creates a renderer for the given grid and registers it as the grid's site listener.
+     * The first frame draws the whole grid; later frames only draw what changed.
+     */
+    public PercolationRenderer(Percolation perc, int N) {
+        this.perc = perc;
+        this.N = N;
+        siteState = new byte[N * N];
+        dirty = new int[N * N];
+        numDirty = 0;
+        for (int row = 0; row < N; row++) {
+            for (int col = 0; col < N; col++) {
+                if (perc.isFull(row, col)) {
+                    siteState[row * N + col] = FULL;
+                } else if (perc.isOpen(row, col)) {
+                    siteState[row * N + col] = OPEN;
+                }
+            }
+        }
+        perc.setSiteListener(this);
+        drawBackground();
+    }
+
+    @Override
+    public void siteOpened(int row, int col) {
+        mark(row * N + col, OPEN);
+    }
+
+    @Override
+    public void siteFilled(int row, int col) {
+        mark(row * N + col, FULL);
+    }
+
+    private void mark(int site, byte state) {
+        if ((siteState[site] & DIRTY) == 0) {
+            dirty[numDirty++] = site;
+        }
+        siteState[site] = (byte) (state | DIRTY);
+    }
+
+    /*
+     * Draw the full N-by-N grid once.
+     */
+    private void drawBackground() {
+        StdDraw.clear();
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.setXscale(-.05 * N, 1.05 * N);
+        StdDraw.setYscale(-.05 * N, 1.05 * N);   // leave a border to write text
+        StdDraw.filledSquare(N / 2.0, N / 2.0, N / 2.0);
+        for (int site = 0; site < siteState.length; site++) {
+            drawSite(site);
+        }
+        drawStatus();
+    }
+
+    /**
+     * Draws the sites that changed since the last frame and refreshes the status text.
+     */
+    public void drawFrame() {
+        for (int i = 0; i < numDirty; i++) {
+            int site = dirty[i];
+            siteState[site] &= ~DIRTY;
+            drawSite(site);
+        }
+        numDirty = 0;
+        drawStatus();
+    }
+
+    private void drawSite(int site) {
+        byte state = (byte) (siteState[site] & ~DIRTY);
+        if (state == FULL) {
+            StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
+        } else if (state == OPEN) {
+            StdDraw.setPenColor(StdDraw.WHITE);
+        } else if (state == BLOCKED) {
+            StdDraw.setPenColor(StdDraw.BLACK);
+        }
+        int row = site / N;
+        int col = site % N;
+        StdDraw.filledSquare(col + 0.5, N - row - 0.5, 0.45);
+    }
+
+    private void drawStatus() {
+        // blank out the previous status text
+        StdDraw.setPenColor(StdDraw.WHITE);
+        StdDraw.filledRectangle(N / 2.0, -N * .025, .55 * N, .025 * N);
+
+        StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.text(.25 * N, -N * .025, perc.numberOfOpenSites() + " open sites");
+        if (perc.percolates()) {
+            StdDraw.text(.75 * N, -N * .025, "percolates");
+        } else {
+            StdDraw.text(.75 * N, -N * .025, "does not percolate");
+        }
+    }
+}
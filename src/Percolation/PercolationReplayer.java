@@ -0,0 +1,81 @@
+package Percolation;
+
+import java.io.IOException;
+
+/******************************************************************************
+ *  Compilation:  javac Percolation.PercolationReplayer.java
+ *  Execution:    java Percolation.PercolationReplayer input.txt
+ *  Dependencies: Percolation.Percolation.java Percolation.SiteSequence.java
+ *
+ *  A headless counterpart to PercolationVisualizer. Reads the same input files
+ *  (text or binary SiteTrace),
+ *  applies the whole sequence of opens to a Percolation object without drawing
+ *  anything, one open at a time as the sites are read, and reports
+ *
+ *    - the number of open sites at the end of the sequence
+ *    - the step (1-based) at which the system first percolated, if it did
+ *    - the time taken to read and apply the sequence
+ *
+ ******************************************************************************/
+public class PercolationReplayer {
+    /** The number of opens in the sequence. */
+    private int steps;
+    /** The 1-based step at which the system first percolated, or 0 if it never did. */
+    private int percolationStep;
+    private Percolation perc;
+
+    /**
+     * Replays every open of the given sequence.
+     */
+    public PercolationReplayer(SiteSequence in) throws IOException {
+        perc = new Percolation(in.gridSize());
+        steps = 0;
+        percolationStep = 0;
+        while (in.next()) {
+            perc.open(in.row(), in.col());
+            steps += 1;
+            if (percolationStep == 0 && perc.percolates()) {
+                percolationStep = steps;
+            }
+        }
+    }
+
+    /**
+     * @return the number of opens in the sequence, including opens of sites that were already open.
+     */
+    public int steps() {
+        return steps;
+    }
+
+    /**
+     * @return the 1-based step at which the system first percolated, or 0 if it never did.
+     */
+    public int percolationStep() {
+        return percolationStep;
+    }
+
+    /**
+     * @return the Percolation object in the state the sequence left it in.
+     */
+    public Percolation percolation() {
+        return perc;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filename = args[0];
+        long start = System.nanoTime();
+        PercolationReplayer replay;
+        try (SiteSequence in = SiteSequence.open(filename)) {
+            replay = new PercolationReplayer(in);
+        }
+        double elapsedMillis = (System.nanoTime() - start) / 1e6;
+        System.out.println("Steps: " + replay.steps());
+        System.out.println("Open sites: " + replay.percolation().numberOfOpenSites());
+        if (replay.percolationStep() > 0) {
+            System.out.println("Percolated at step: " + replay.percolationStep());
+        } else {
+            System.out.println("Does not percolate");
+        }
+        System.out.printf("Elapsed: %.3f ms\n", elapsedMillis);
+    }
+}
@@ -1,3 +1,17 @@
+package Percolation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.StdStats;
 
@@ -6,6 +20,21 @@ import edu.princeton.cs.algs4.StdStats;
  * a number of tests to run, and whether or not to display a visual representation of the system being tested.
  * Tracks input sequences to be used for debugging if necessary. Uses the PercolationVisualizer class to display
  * a nice representation of the system if desired.
+ * <p>
+ * Tests can also be run in parallel across a pool of worker threads. In that mode every test draws its random
+ * sites from its own stream of a TrialRandom, selected by the base seed and the test number, so the thresholds
+ * for a given seed are identical no matter how many threads run them or which thread picks up which test.
+ * The streams come from SplittableTrialRandom unless another kind, such as XoshiroTrialRandom, is asked for.
+ * How a single test opens its sites is decided by a PercolationTrial; by default sites are opened in the
+ * order of a random permutation so that no draw is wasted on an already open site, and the test stops at
+ * the exact step the lattice first percolates. BisectionTrial finds the same step by binary search over
+ * bulk opened prefixes of the permutation instead.
+ * <p>
+ * Long parallel runs can save their thresholds to a PercolationCheckpoint as they go and resume from it
+ * after being killed. To find out where the time of a run goes, pass a CountingMetrics to count the opens,
+ * finds and unions of every test; each worker counts into its own instance and the totals are added up at the
+ * end. A ClusterStatistics collects the sizes of the clusters of open sites at percolation in the same way.
+ * A Builder combines any of these with any lattice, trial and kind of random stream.
  */
 public class PercolationStats {
     /** The scaling factor for calculating the confidence interval. */
@@ -15,9 +44,13 @@ public class PercolationStats {
     private double[] thresholds;
     /** The number of tests to run. */
     private int T;
-    /** The size of the grid to be used for tests. */
+    /** The size of the grid to be used for tests, if the tests are run on an N by N grid. */
     private int N;
-    
+    /** The number of tests run by this object, which leaves out tests loaded from a checkpoint. */
+    private int testsRun;
+    /** The wall clock time taken to run the tests. */
+    private long elapsedNanos;
+
     public static void Main(String[] args) {
         if (args.length < 2) {
             System.out.printf("Invalid arguments:\nUsage:\n\tjava StatsTest [grid size] [number of tests] (-show)\n");
@@ -25,12 +58,13 @@ public class PercolationStats {
         int N = Integer.parseInt(args[0]);
         int T = Integer.parseInt(args[1]);
         PercolationStats ps = new PercolationStats(N, T);
-        System.out.printf("mean = %f\nstddev = %f\n95%% confidence interval = %f, %f\n", ps.mean(), ps.stddev(), ps.confidenceLo(), ps.confidenceHi());
+        System.out.printf("mean = %f\nstddev = %f\n95%% confidence interval = %f, %f\n", ps.mean(), ps.stddev(),
+                ps.confidenceLo(), ps.confidenceHi());
     }
 
     public PercolationStats(int N, int T) {
         if (N <= 0 || T <= 0) {
-            throw new IllegalArgumentException("Invalid args to PercolationStats Constructor");   
+            throw new IllegalArgumentException("Invalid args to PercolationStats Constructor");
         }
         thresholds = new double[T];
         this.T = T;
@@ -38,20 +72,302 @@ public class PercolationStats {
         runTests();
     }
 
+    /**
+     * Runs T tests in parallel on a pool of worker threads.
+     *
+     * @param N the size of the grid to be used for tests
+     * @param T the number of tests to run
+     * @param seed the base seed that every test's random stream is derived from
+     * @param threads the number of worker threads to use
+     */
+    public PercolationStats(int N, int T, long seed, int threads) {
+        this(N, T, seed, threads, PermutationTrial::new);
+    }
+
+    /**
+     * Runs T tests of an N by N grid in parallel on a pool of worker threads using the given kind of trial.
+     *
+     * @param N the size of the grid to be used for tests
+     * @param T the number of tests to run
+     * @param seed the base seed that every test's random stream is derived from
+     * @param threads the number of worker threads to use
+     * @param trialFactory creates one trial per worker, e.g. {@code RandomSiteTrial::new}
+     */
+    public PercolationStats(int N, int T, long seed, int threads, Supplier<PercolationTrial> trialFactory) {
+        this(squareGrids(N), T, seed, threads, trialFactory);
+    }
+
+    /**
+     * Runs T tests on lattices of any shape in parallel on a pool of worker threads, for example
+     * {@code new PercolationStats(() -> new Percolation3D(L, M, N), T, seed, threads, PermutationTrial::new)}.
+     * To save the tests to a checkpoint, count their operations, record their clusters or choose their random
+     * streams as well, use a Builder.
+     *
+     * @param latticeFactory creates one empty lattice per worker; every call must create the same shape
+     * @param T the number of tests to run
+     * @param seed the base seed that every test's random stream is derived from
+     * @param threads the number of worker threads to use
+     * @param trialFactory creates one trial per worker, e.g. {@code RandomSiteTrial::new}
+     */
+    public PercolationStats(Supplier<? extends LatticePercolation> latticeFactory, int T, long seed, int threads,
+                            Supplier<PercolationTrial> trialFactory) {
+        this(new Builder(metrics -> latticeFactory.get(), T).seed(seed).threads(threads).trial(trialFactory));
+    }
+
+    private PercolationStats(Builder options) {
+        if (options.T <= 0 || options.threads <= 0) {
+            throw new IllegalArgumentException("Invalid args to PercolationStats Constructor");
+        }
+        thresholds = new double[options.T];
+        T = options.T;
+        boolean[] done = new boolean[T];
+        PercolationCheckpoint.Run run = null;
+        if (options.checkpoint != null) {
+            // the lattice, trial and random stream the workers will use, to check the checkpoint against
+            run = new PercolationCheckpoint.Run(options.seed, T, options.latticeFactory.apply(PercolationMetrics.NONE),
+                                                options.trialFactory.get(), options.randomFactory.get());
+            try {
+                options.checkpoint.load(run, thresholds, done);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read checkpoint", e);
+            }
+        }
+        runTestsInParallel(options, run, done);
+    }
+
+    /**
+     * The options of a parallel run, any combination of which may be given. For example
+     * <pre>
+     * new PercolationStats.Builder(metrics -&gt; new Percolation3D(L, M, N), T)
+     *         .seed(seed).threads(threads).random(XoshiroTrialRandom::new).clusters(clusters).build();
+     * </pre>
+     * Unless given otherwise, the seed is 0, every available processor is used, and the tests are
+     * PermutationTrials drawn from SplittableTrialRandom streams, without a checkpoint, metrics or clusters.
+     */
+    public static class Builder {
+        private Function<PercolationMetrics, ? extends LatticePercolation> latticeFactory;
+        private int T;
+        private long seed;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Supplier<PercolationTrial> trialFactory = PermutationTrial::new;
+        private Supplier<TrialRandom> randomFactory = SplittableTrialRandom::new;
+        private PercolationCheckpoint checkpoint;
+        private CountingMetrics metrics;
+        private ClusterStatistics clusters;
+
+        /**
+         * @param latticeFactory creates one empty lattice per worker; every call must create the same shape.
+         *                       It is given the metrics the worker counts into, or PercolationMetrics.NONE,
+         *                       for the lattice's union finds to report to when they are created with
+         *                       {@code n -> new WeightedQuickUnionPathCompressionUF(n, metrics)}. The opens
+         *                       of a lattice whose union finds ignore it are still counted.
+         * @param T the number of tests to run
+         */
+        public Builder(Function<PercolationMetrics, ? extends LatticePercolation> latticeFactory, int T) {
+            this.latticeFactory = latticeFactory;
+            this.T = T;
+        }
+
+        /** The base seed that every test's random stream is derived from. */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /** The number of worker threads to use. */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /** Creates one trial per worker, e.g. {@code BisectionTrial::new}. */
+        public Builder trial(Supplier<PercolationTrial> trialFactory) {
+            this.trialFactory = trialFactory;
+            return this;
+        }
+
+        /**
+         * Creates one random stream per worker, e.g. {@code XoshiroTrialRandom::new}.
+         */
+        public Builder random(Supplier<TrialRandom> randomFactory) {
+            this.randomFactory = randomFactory;
+            return this;
+        }
+
+        /**
+         * Saves every finished test to the given checkpoint. Tests already saved in it by an earlier run with
+         * the same seed, T, lattice dimensions, trial and kind of random stream are not run again; a checkpoint
+         * saved by any other run is rejected when the tests are run. One lattice, trial and random stream are
+         * created up front to check the checkpoint against.
+         */
+        public Builder checkpoint(PercolationCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        /** Counts the opens, finds and unions of every test into the given metrics. */
+        public Builder metrics(CountingMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Records the clusters of open sites of every lattice at the moment it percolates into the given
+         * statistics. Cluster tracking is enabled on every lattice the factory creates.
+         */
+        public Builder clusters(ClusterStatistics clusters) {
+            this.clusters = clusters;
+            return this;
+        }
+
+        /**
+         * Runs the tests.
+         *
+         * @throws UncheckedIOException if the checkpoint cannot be read or written
+         */
+        public PercolationStats build() {
+            return new PercolationStats(this);
+        }
+    }
+
+    static Supplier<Percolation> squareGrids(int N) {
+        if (N <= 0) {
+            throw new IllegalArgumentException("Invalid args to PercolationStats Constructor");
+        }
+        return () -> new Percolation(N);
+    }
+
     private void runTests() {
+        long start = System.nanoTime();
+        Percolation test = new Percolation(N);
+        TrialRandom random = new SplittableTrialRandom();
+        // drawn from StdRandom, so StdRandom.setSeed makes the run repeatable
+        long seed = StdRandom.uniform(Integer.MAX_VALUE);
         // run T tests
         for (int currentTestNumber = 0; currentTestNumber < T; ++currentTestNumber) {
             // initialize required components for test
-            Percolation test = new Percolation(N);
+            test.reset();
+            random.startTrial(seed, currentTestNumber);
             // open random sites until the system percolates
             while (!test.percolates()) {
-                int randomRow = StdRandom.uniform(N);
-                int randomCol = StdRandom.uniform(N);
+                int randomRow = random.nextInt(N);
+                int randomCol = random.nextInt(N);
                 test.open(randomRow, randomCol);
             }
             // system has percolated, update thresholds tracker
             thresholds[currentTestNumber] = (double)test.numberOfOpenSites() / (N * N);
         }
+        testsRun = T;
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /*
+     * Each worker repeatedly claims the next unclaimed test number until all T tests have been run,
+     * so faster workers simply run more tests. Results are stored by test number, not by worker.
+     * A worker resets and reuses the same Percolation, trial and random objects for every test it runs.
+     * Tests marked done were loaded from a checkpoint and are skipped; with a checkpoint, every worker
+     * appends its results to its own file. With metrics, every worker counts into a CountingMetrics of its
+     * own, which are added to the metrics of the options at the end, and likewise for cluster statistics.
+     */
+    private void runTestsInParallel(Builder options, PercolationCheckpoint.Run run, boolean[] done) {
+        long seed = options.seed;
+        PercolationCheckpoint checkpoint = options.checkpoint;
+        CountingMetrics metrics = options.metrics;
+        ClusterStatistics clusters = options.clusters;
+        int threads = options.threads;
+        long start = System.nanoTime();
+        AtomicInteger nextTestNumber = new AtomicInteger();
+        AtomicInteger testsRunByWorkers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                int worker = i;
+                workers.add(pool.submit(() -> {
+                    CountingMetrics counts = metrics == null ? null : new CountingMetrics();
+                    ClusterStatistics clustersSeen = clusters == null ? null : new ClusterStatistics();
+                    PercolationTrial trial = options.trialFactory.get();
+                    TrialRandom random = options.randomFactory.get();
+                    PercolationMetrics reportTo = counts == null ? PercolationMetrics.NONE : counts;
+                    LatticePercolation perc = options.latticeFactory.apply(reportTo);
+                    perc.setMetrics(reportTo);
+                    if (clustersSeen != null) {
+                        perc.enableClusterTracking();
+                    }
+                    PercolationCheckpoint.Writer saved = checkpoint == null ? null
+                                                                           : checkpoint.writer(worker, run);
+                    try {
+                        int currentTestNumber;
+                        while ((currentTestNumber = nextTestNumber.getAndIncrement()) < T) {
+                            if (done[currentTestNumber]) {
+                                continue;
+                            }
+                            random.startTrial(seed, currentTestNumber);
+                            perc.reset();
+                            thresholds[currentTestNumber] = trial.run(perc, random);
+                            testsRunByWorkers.incrementAndGet();
+                            if (counts != null) {
+                                counts.trialFinished();
+                            }
+                            if (clustersSeen != null) {
+                                clustersSeen.record(perc);
+                            }
+                            if (saved != null) {
+                                saved.record(currentTestNumber, thresholds[currentTestNumber]);
+                            }
+                        }
+                    } finally {
+                        if (saved != null) {
+                            saved.close();
+                        }
+                    }
+                    if (counts != null) {
+                        synchronized (metrics) {
+                            metrics.add(counts);
+                        }
+                    }
+                    if (clustersSeen != null) {
+                        synchronized (clusters) {
+                            clusters.add(clustersSeen);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            testsRun = testsRunByWorkers.get();
+            elapsedNanos = System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tests", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException("Could not write checkpoint", (IOException) e.getCause());
+            }
+            throw new IllegalStateException("A test failed to run", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * Derive the seed of a single test from the base seed and the test number. The result is hashed so that
+     * consecutive tests do not get overlapping streams, which they would with plain seed + testNumber.
+     */
+    static long testSeed(long seed, int testNumber) {
+        long z = seed + (testNumber + 1) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the number of tests run per second of wall clock time, leaving out tests loaded from a checkpoint.
+     */
+    public double testsPerSecond() {
+        return testsRun / (elapsedNanos / 1e9);
     }
 
     /** Mean of percolation threshold. */
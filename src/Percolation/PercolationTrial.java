@@ -0,0 +1,19 @@
+package Percolation;
+
+/**
+ * A strategy for running a single percolation test. A trial opens sites of an empty lattice
+ * until it percolates and reports the fraction of sites that were open at that moment.
+ * <p>
+ * Trials may keep scratch buffers between runs, so an instance must only be used by one thread at a time.
+ * PercolationStats creates one trial per worker thread.
+ */
+public interface PercolationTrial {
+    /**
+     * Run a single test.
+     *
+     * @param perc an empty lattice to open sites in
+     * @param random the random stream to draw sites from
+     * @return the fraction of sites open at the time the system percolated
+     */
+    double run(LatticePercolation perc, TrialRandom random);
+}
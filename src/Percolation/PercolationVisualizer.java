@@ -1,25 +1,29 @@
 package Percolation;
 
 import java.awt.Font;
+import java.io.IOException;
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
 
 /******************************************************************************
  *  Compilation:  javac Percolation.PercolationVisualizer.java
- *  Execution:    java Percolation.PercolationVisualizer input.txt
+ *  Execution:    java Percolation.PercolationVisualizer input.txt [opensPerFrame]
  *  Dependencies: Percolation.Percolation.java
  *
- *  This program takes the name of a file as a command-line argument.
+ *  This program takes the name of a file as a command-line argument,
+ *  either a text file like those in input/ or a binary SiteTrace.
  *  From that file, it
  *
  *    - Reads the grid size N of the percolation system.
  *    - Creates an N-by-N grid of sites (intially all blocked)
  *    - Reads in a sequence of sites (row i, column j) to open.
  *
- *  After each site is opened, it draws full sites in light blue,
- *  open sites (that aren't full) in white, and blocked sites in black,
- *  with with site (0, 0) in the upper left-hand corner.
+ *  After every opensPerFrame sites (default 1) are opened, it draws full sites
+ *  in light blue, open sites (that aren't full) in white, and blocked sites in
+ *  black, with with site (0, 0) in the upper left-hand corner. Only the sites
+ *  that changed since the previous frame are redrawn (see PercolationRenderer).
+ *
+ *  To apply a sequence without drawing it, see PercolationReplayer.
  *
  ******************************************************************************/
 public class PercolationVisualizer {
@@ -61,28 +65,43 @@ public class PercolationVisualizer {
 
     }
 
-    private static void simulateFromFile(String filename) {
-        In in = new In(filename);
-        int N = in.readInt();
-        Percolation perc = new Percolation(N);
+    private static void simulateFromFile(String filename, int opensPerFrame) throws IOException {
+        try (SiteSequence in = SiteSequence.open(filename)) {
+            int N = in.gridSize();
+            Percolation perc = new Percolation(N);
 
-        // turn on animation mode
-        StdDraw.show(0);
+            // turn on animation mode
+            StdDraw.show(0);
 
-        // repeatedly read in sites to open and draw resulting system
-        draw(perc, N);
-        StdDraw.show(DELAY);
-        while (!in.isEmpty()) {
-            int i = in.readInt();
-            int j = in.readInt();
-            perc.open(i, j);
-            draw(perc, N);
+            // repeatedly read in sites to open and draw what changed
+            PercolationRenderer renderer = new PercolationRenderer(perc, N);
             StdDraw.show(DELAY);
+            int opensSinceFrame = 0;
+            while (in.next()) {
+                perc.open(in.row(), in.col());
+                opensSinceFrame += 1;
+                if (opensSinceFrame == opensPerFrame) {
+                    renderer.drawFrame();
+                    StdDraw.show(DELAY);
+                    opensSinceFrame = 0;
+                }
+            }
+            if (opensSinceFrame > 0) {
+                renderer.drawFrame();
+                StdDraw.show(DELAY);
+            }
         }
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         String filename = args[0];
-        simulateFromFile(filename);
+        int opensPerFrame = 1;
+        if (args.length > 1) {
+            opensPerFrame = Integer.parseInt(args[1]);
+        }
+        if (opensPerFrame <= 0) {
+            throw new IllegalArgumentException("opensPerFrame must be positive");
+        }
+        simulateFromFile(filename, opensPerFrame);
     }
 }
@@ -0,0 +1,36 @@
+package Percolation;
+
+/**
+ * A test that opens sites in the order of a random permutation of all site ids, so every step opens
+ * a site that was not open before. The permutation is produced by an in-place Fisher–Yates shuffle that
+ * only runs as far as the test needs: step k swaps a random not yet used id into position k and opens it.
+ * The threshold is then simply the number of steps taken divided by the number of sites.
+ * <p>
+ * The id buffer is allocated by the first test and reused for every later test on a lattice of the same size.
+ */
+public class PermutationTrial implements PercolationTrial {
+    /** The site ids, shuffled one position at a time as the test progresses. */
+    private int[] sites;
+
+    @Override
+    public double run(LatticePercolation perc, TrialRandom random) {
+        int numSites = perc.numberOfSites();
+        if (sites == null || sites.length != numSites) {
+            sites = new int[numSites];
+        }
+        // start from the identity so a test depends only on its random stream and not on earlier tests
+        for (int i = 0; i < numSites; ++i) {
+            sites[i] = i;
+        }
+        int step = 0;
+        while (!perc.percolates()) {
+            int swap = step + random.nextInt(numSites - step);
+            int site = sites[swap];
+            sites[swap] = sites[step];
+            sites[step] = site;
+            perc.openSite(site);
+            step += 1;
+        }
+        return (double) step / numSites;
+    }
+}
@@ -33,9 +33,10 @@ import edu.princeton.cs.algs4.StdOut;
  *  @author Robert Sedgewick
  *  @author Kevin Wayne
  */
-public class QuickUnionPathCompressionUF {
+public class QuickUnionPathCompressionUF implements UnionFind {
     private int[] id;    // id[i] = parent of i
     private int count;   // number of components
+    private PercolationMetrics metrics = PercolationMetrics.NONE;
 
     /**
      * Initializes an empty union–find data structure with n isolated components 0 through n-1.
@@ -50,11 +51,23 @@ public class QuickUnionPathCompressionUF {
         }
     }
 
+    /**
+     * Initializes an empty union–find data structure with n isolated components 0 through n-1
+     * that reports every find and union to the given metrics.
+     * @param n the number of sites
+     * @param metrics receives the finds and unions, e.g. a CountingMetrics
+     */
+    public QuickUnionPathCompressionUF(int n, PercolationMetrics metrics) {
+        this(n);
+        this.metrics = metrics;
+    }
+
     /**
      * Returns the number of components.
      *
      * @return the number of components (between {@code 1} and {@code n})
      */
+    @Override
     public int count() {
         return count;
     }
@@ -66,18 +79,39 @@ public class QuickUnionPathCompressionUF {
      * @return the component identifier for the component containing site {@code p}
      * @throws IndexOutOfBoundsException unless {@code 0 <= p < n}
      */
+    @Override
     public int find(int p) {
         int root = p;
-        while (root != id[root])
+        int depth = 0;
+        while (root != id[root]) {
             root = id[root];
+            depth++;
+        }
         while (p != root) {
             int newp = id[p];
             id[p] = root;
             p = newp;
         }
+        // every link but the last one, which already pointed at the root, was rewritten
+        metrics.found(depth, Math.max(depth - 1, 0));
         return root;
     }
 
+    /**
+     * Returns the component identifier for the component containing site {@code p}
+     * without compressing the path to it.
+     *
+     * @param  p the integer representing one object
+     * @return the component identifier for the component containing site {@code p}
+     * @throws IndexOutOfBoundsException unless {@code 0 <= p < n}
+     */
+    @Override
+    public int root(int p) {
+        while (p != id[p])
+            p = id[p];
+        return p;
+    }
+
     /**
      * Returns true if the the two sites are in the same component.
      *
@@ -88,6 +122,7 @@ public class QuickUnionPathCompressionUF {
      * @throws IndexOutOfBoundsException unless
      *         both {@code 0 <= p < n} and {@code 0 <= q < n}
      */
+    @Override
     public boolean connected(int p, int q) {
         return find(p) == find(q);
     }
@@ -101,12 +136,37 @@ public class QuickUnionPathCompressionUF {
      * @throws IndexOutOfBoundsException unless
      *         both {@code 0 <= p < n} and {@code 0 <= q < n}
      */
+    @Override
     public void union(int p, int q) {
         int rootP = find(p);
         int rootQ = find(q);
-        if (rootP == rootQ) return;
+        if (rootP == rootQ) {
+            metrics.united(false);
+            return;
+        }
+        link(rootP, rootQ);
+    }
+
+    @Override
+    public int link(int rootP, int rootQ) {
+        if (rootP == rootQ) {
+            throw new IllegalArgumentException("Cannot link a root to itself: " + rootP);
+        }
+        metrics.united(true);
         id[rootP] = rootQ;
         count--;
+        return rootQ;
+    }
+
+    /**
+     * Restores the data structure to n isolated components in place, without allocating.
+     */
+    @Override
+    public void reset() {
+        count = id.length;
+        for (int i = 0; i < id.length; i++) {
+            id[i] = i;
+        }
     }
 
     /**
@@ -0,0 +1,17 @@
+package Percolation;
+
+/**
+ * The original test: draw a random site and open it until the system percolates.
+ * Sites that are already open are drawn again and again as the lattice fills up, so close to the
+ * threshold a large share of the draws are wasted. Kept for comparison with PermutationTrial.
+ */
+public class RandomSiteTrial implements PercolationTrial {
+    @Override
+    public double run(LatticePercolation perc, TrialRandom random) {
+        int numSites = perc.numberOfSites();
+        while (!perc.percolates()) {
+            perc.openSite(random.nextInt(numSites));
+        }
+        return (double) perc.numberOfOpenSites() / numSites;
+    }
+}
@@ -0,0 +1,184 @@
+package Percolation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A PercolationStats that decides for itself how many tests to run. Instead of storing every threshold and
+ * computing the statistics at the end, it keeps a running mean and variance (Welford's method) and stops as
+ * soon as the 95% confidence interval is narrower than plus or minus epsilon, or when a time budget runs out,
+ * whichever comes first.
+ * <p>
+ * Tests run in parallel exactly as in PercolationStats, with the stream of test k seeded from the base seed and
+ * k. Results are folded into the running statistics strictly in test number order, so when a run stops on the
+ * confidence target it always stops after the same number of tests with the same statistics, no matter how many
+ * threads ran them. Only a run cut short by the time budget depends on the speed of the machine.
+ */
+public class SequentialPercolationStats {
+    /** The scaling factor for calculating the confidence interval. */
+    private static final double CONFIDENCE_SCALING_FACTOR = 1.96;
+    /** The number of tests always run before the interval is trusted enough to stop on. */
+    private static final int MIN_TESTS = 10;
+
+    private double epsilon;
+    private int maxTests;
+    /** The time after which no new tests are started, as a System.nanoTime() value. */
+    private long deadline;
+
+    /** The number of tests folded into the running statistics. */
+    private int count;
+    private double mean;
+    /** The sum of squared differences from the current mean. */
+    private double m2;
+    /** Results of tests that finished ahead of an earlier test, waiting to be folded in order. */
+    private Map<Integer, Double> pending;
+    /** True once a stopping rule has been met; workers stop claiming tests. */
+    private volatile boolean done;
+    private boolean converged;
+
+    /**
+     * @param latticeFactory creates one empty lattice per worker; every call must create the same shape
+     * @param epsilon the target half-width of the 95% confidence interval
+     * @param maxTests the largest number of tests to run even if the target is not reached
+     * @param timeBudgetMillis stop starting new tests after this many milliseconds, 0 for no limit
+     * @param seed the base seed that every test's random stream is derived from
+     * @param threads the number of worker threads to use
+     * @param trialFactory creates one trial per worker, e.g. {@code PermutationTrial::new}
+     */
+    public SequentialPercolationStats(Supplier<? extends LatticePercolation> latticeFactory, double epsilon,
+                                      int maxTests, long timeBudgetMillis, long seed, int threads,
+                                      Supplier<PercolationTrial> trialFactory) {
+        this(latticeFactory, epsilon, maxTests, timeBudgetMillis, seed, threads, trialFactory,
+                SplittableTrialRandom::new);
+    }
+
+    /**
+     * Runs tests like the constructor above, drawing them from the given kind of random stream.
+     *
+     * @param randomFactory creates one random stream per worker, e.g. {@code XoshiroTrialRandom::new}
+     */
+    public SequentialPercolationStats(Supplier<? extends LatticePercolation> latticeFactory, double epsilon,
+                                      int maxTests, long timeBudgetMillis, long seed, int threads,
+                                      Supplier<PercolationTrial> trialFactory, Supplier<TrialRandom> randomFactory) {
+        if (!(epsilon > 0) || maxTests < 2 || timeBudgetMillis < 0 || threads <= 0) {
+            throw new IllegalArgumentException("Invalid args to SequentialPercolationStats Constructor");
+        }
+        this.epsilon = epsilon;
+        this.maxTests = maxTests;
+        deadline = timeBudgetMillis == 0 ? Long.MAX_VALUE : System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        pending = new HashMap<>();
+        runTests(latticeFactory, seed, threads, trialFactory, randomFactory);
+    }
+
+    /**
+     * Runs tests of an N by N grid until the 95% confidence interval is within plus or minus epsilon.
+     */
+    public SequentialPercolationStats(int N, double epsilon, int maxTests, long seed, int threads) {
+        this(PercolationStats.squareGrids(N), epsilon, maxTests, 0, seed, threads, PermutationTrial::new);
+    }
+
+    private void runTests(Supplier<? extends LatticePercolation> latticeFactory, long seed, int threads,
+                          Supplier<PercolationTrial> trialFactory, Supplier<TrialRandom> randomFactory) {
+        AtomicInteger nextTestNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                workers.add(pool.submit(() -> {
+                    PercolationTrial trial = trialFactory.get();
+                    TrialRandom random = randomFactory.get();
+                    LatticePercolation perc = latticeFactory.get();
+                    int currentTestNumber;
+                    while (!done && System.nanoTime() < deadline
+                            && (currentTestNumber = nextTestNumber.getAndIncrement()) < maxTests) {
+                        random.startTrial(seed, currentTestNumber);
+                        perc.reset();
+                        record(currentTestNumber, trial.run(perc, random));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tests", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A test failed to run", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if (count < 2) {
+            throw new IllegalStateException("Time budget too small to run two tests");
+        }
+    }
+
+    /*
+     * Fold the result of a test into the statistics once every earlier test has been folded in.
+     * Results arriving after a stopping rule was met are dropped.
+     */
+    private synchronized void record(int testNumber, double threshold) {
+        if (done) {
+            return;
+        }
+        pending.put(testNumber, threshold);
+        Double next;
+        while ((next = pending.remove(count)) != null) {
+            count += 1;
+            double delta = next - mean;
+            mean += delta / count;
+            m2 += delta * (next - mean);
+            if (count >= MIN_TESTS && halfWidth() < epsilon) {
+                converged = true;
+                done = true;
+                return;
+            }
+            if (count == maxTests) {
+                done = true;
+                return;
+            }
+        }
+    }
+
+    private double halfWidth() {
+        return CONFIDENCE_SCALING_FACTOR * stddev() / Math.sqrt(count);
+    }
+
+    /** Number of tests the statistics are based on. */
+    public int trialsUsed() {
+        return count;
+    }
+
+    /** True if the run stopped because the confidence target was reached. */
+    public boolean converged() {
+        return converged;
+    }
+
+    /** Mean of percolation threshold. */
+    public double mean() {
+        return mean;
+    }
+
+    /** Standard deviation of percolation threshold. */
+    public double stddev() {
+        return Math.sqrt(m2 / (count - 1));
+    }
+
+    /** Low endpoint of 95% confidence interval. */
+    public double confidenceLo() {
+        return mean - halfWidth();
+    }
+
+    /** High endpoint of 95% confidence interval. */
+    public double confidenceHi() {
+        return mean + halfWidth();
+    }
+}
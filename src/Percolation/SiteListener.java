@@ -0,0 +1,19 @@
+package Percolation;
+
+/**
+ * Receives a notification whenever a site of a Percolation object changes state. Each site is reported as
+ * opened once and, if it ever becomes full, as filled once, so a client can keep its own picture of the grid
+ * up to date without querying every site after every open.
+ */
+public interface SiteListener {
+    /**
+     * Called after the site at ROW, COL has been opened.
+     */
+    void siteOpened(int row, int col);
+
+    /**
+     * Called after the site at ROW, COL has become full, either because it was opened next to a full site
+     * or because the component it belongs to was connected to a full one.
+     */
+    void siteFilled(int row, int col);
+}
@@ -0,0 +1,50 @@
+package Percolation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * A sequence of sites to open in a grid of a known size, read from a file one site at a time.
+ * Call next() to advance to the following site and row() and col() to inspect it.
+ */
+public interface SiteSequence extends Closeable {
+    /**
+     * @return the width and height of the grid the sequence was recorded for.
+     */
+    int gridSize();
+
+    /**
+     * Advances to the next site of the sequence.
+     *
+     * @return false if the end of the sequence has been reached, else true.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the row of the current site.
+     */
+    int row();
+
+    /**
+     * @return the column of the current site.
+     */
+    int col();
+
+    /**
+     * Opens a site sequence file in either the text format accepted by PercolationVisualizer
+     * or the binary format written by SiteTrace, telling them apart by the trace's magic number.
+     */
+    static SiteSequence open(String filename) throws IOException {
+        boolean isTrace;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            isTrace = in.available() >= 4 && in.readInt() == SiteTrace.MAGIC;
+        }
+        if (isTrace) {
+            return new SiteTrace.Reader(new FileInputStream(filename));
+        }
+        return new TextSiteSequence(new SiteSequenceReader(filename));
+    }
+}
@@ -0,0 +1,109 @@
+package Percolation;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * A fast reader for site sequence files such as input/snake1001.txt: a grid size followed by pairs of
+ * row and column numbers separated by whitespace. Integers are parsed straight from a byte buffer that
+ * is refilled in large blocks, so reading allocates nothing per number and avoids the regular
+ * expression machinery of a Scanner.
+ */
+public class SiteSequenceReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private InputStream in;
+    private byte[] buffer;
+    /** The position of the next unread byte in buffer. */
+    private int position;
+    /** The number of valid bytes in buffer. */
+    private int limit;
+
+    public SiteSequenceReader(String filename) throws IOException {
+        this(new FileInputStream(filename));
+    }
+
+    public SiteSequenceReader(InputStream in) {
+        this.in = in;
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+    }
+
+    /**
+     * @return true if there is another integer left to read.
+     */
+    public boolean hasNextInt() throws IOException {
+        skipWhitespace();
+        return position < limit;
+    }
+
+    /**
+     * Reads the next integer, which may be preceded by any amount of whitespace.
+     *
+     * @return the integer read
+     * @throws NoSuchElementException if the end of the input has been reached
+     * @throws NumberFormatException if the next token is not an integer
+     */
+    public int nextInt() throws IOException {
+        if (!hasNextInt()) {
+            throw new NoSuchElementException("No integers left to read");
+        }
+        boolean negative = buffer[position] == '-';
+        if (negative) {
+            position += 1;
+        }
+        int result = 0;
+        int digits = 0;
+        while (position < limit || fill()) {
+            int b = buffer[position];
+            if (b < '0' || b > '9') {
+                if (!isWhitespace(b)) {
+                    throw new NumberFormatException("Unexpected character '" + (char) b + "' in integer");
+                }
+                break;
+            }
+            result = result * 10 + (b - '0');
+            digits += 1;
+            position += 1;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Expected an integer");
+        }
+        return negative ? -result : result;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (position < limit || fill()) {
+            if (!isWhitespace(buffer[position])) {
+                return;
+            }
+            position += 1;
+        }
+    }
+
+    /*
+     * Refill the buffer from the underlying stream. Returns false once the stream is exhausted.
+     */
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit < 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,160 @@
+package Percolation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compact binary format for site sequences. A trace consists of
+ * <ul>
+ *     <li>the magic number 0x50435452 ("PCTR") and a format version byte,</li>
+ *     <li>the grid size and the number of sites, as 4 byte big-endian integers,</li>
+ *     <li>one entry per site: the difference between its 1D id (row * N + col) and the id of the
+ *     site before it, zigzag encoded so small negative steps stay small, then written as a varint
+ *     (7 bits per byte, high bit set on every byte but the last).</li>
+ * </ul>
+ * Consecutive opens tend to be close together, so most sites take one to three bytes instead of the
+ * eight to twelve characters of a line in the text format.
+ * <p>
+ * Running this class converts a text sequence file to a trace:
+ * <pre>java Percolation.SiteTrace input.txt output.trace</pre>
+ */
+public class SiteTrace {
+    /** The first four bytes of every trace. */
+    static final int MAGIC = 0x50435452;
+    private static final int VERSION = 1;
+
+    private SiteTrace() {
+    }
+
+    /**
+     * Writes a trace of count sites. Site i is at row sites[2 * i], column sites[2 * i + 1].
+     *
+     * @throws IllegalArgumentException if a site lies outside of an N by N grid
+     */
+    public static void write(OutputStream out, int N, int[] sites, int count) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(N);
+        data.writeInt(count);
+        int previous = 0;
+        for (int i = 0; i < count; ++i) {
+            int row = sites[2 * i];
+            int col = sites[2 * i + 1];
+            if (row < 0 || row >= N || col < 0 || col >= N) {
+                throw new IllegalArgumentException("Site " + row + " " + col + " outside of grid of size " + N);
+            }
+            int id = row * N + col;
+            int delta = id - previous;
+            writeVarint(data, (delta << 1) ^ (delta >> 31));
+            previous = id;
+        }
+        data.flush();
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads a trace written by SiteTrace.write.
+     */
+    public static class Reader implements SiteSequence {
+        private DataInputStream in;
+        private int N;
+        /** The number of sites not yet read. */
+        private int remaining;
+        private int id;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a site trace");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported site trace version " + version);
+            }
+            N = this.in.readInt();
+            remaining = this.in.readInt();
+            id = 0;
+        }
+
+        @Override
+        public int gridSize() {
+            return N;
+        }
+
+        /**
+         * @return the number of sites left to read.
+         */
+        public int remaining() {
+            return remaining;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            int zigzag = readVarint();
+            id += (zigzag >>> 1) ^ -(zigzag & 1);
+            remaining -= 1;
+            return true;
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Site trace ends early");
+                }
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in site trace");
+        }
+
+        @Override
+        public int row() {
+            return id / N;
+        }
+
+        @Override
+        public int col() {
+            return id % N;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        FailureSequence sequence;
+        try (SiteSequence in = SiteSequence.open(args[0])) {
+            sequence = new FailureSequence(in.gridSize());
+            while (in.next()) {
+                sequence.recordInput(in.row(), in.col());
+            }
+        }
+        try (OutputStream out = new FileOutputStream(args[1])) {
+            sequence.writeTrace(out);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package Percolation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws every test from a java.util.SplittableRandom seeded with PercolationStats.testSeed(seed, testNumber),
+ * the streams every trial driver used before TrialRandom existed, so runs with a given seed keep their exact
+ * thresholds. Starting a test allocates a new SplittableRandom.
+ */
+public class SplittableTrialRandom implements TrialRandom {
+    private SplittableRandom random;
+
+    public SplittableTrialRandom() {
+        startTrial(0, 0);
+    }
+
+    @Override
+    public void startTrial(long seed, int testNumber) {
+        random = new SplittableRandom(PercolationStats.testSeed(seed, testNumber));
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
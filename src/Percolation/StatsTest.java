@@ -1,38 +1,96 @@
 package Percolation;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
 /**
  * A client for the PercolationStats class. This program takes the width of a grid to test,
- * the number of tests to run and a flag to dictate whether a visual representation of the model
- * is shown. This flag should be "-show", any other flag or the absence of one will result in no
- * visual display.
+ * the number of tests to run and optionally a seed and a number of worker threads. Without a seed
+ * the current time is used; without a thread count every available processor is used.
+ * The grid size may also be given as ROWSxCOLS for a rectangular grid or LAYERSxROWSxCOLS for a 3D lattice.
+ * Given a checkpoint directory as well, finished tests are saved there and a killed run started again with the
+ * same arguments resumes where it stopped. With the -metrics flag, tests count their opens, finds
+ * and unions and a report of operations per test is printed after the statistics. With the -clusters flag, the
+ * sizes of the clusters of open sites at percolation are reported as well. With the -xoshiro flag, tests draw
+ * their sites from XoshiroTrialRandom instead of SplittableTrialRandom.
  * <p>
  * Uses the PercolationStats class to print relevant information regarding the probability of percolation.
  */
 public class StatsTest {
+    private static final List<String> FLAGS = Arrays.asList("-metrics", "-clusters", "-xoshiro");
+
     public static void main(String[] args) {
+        boolean countMetrics = Arrays.asList(args).contains("-metrics");
+        boolean countClusters = Arrays.asList(args).contains("-clusters");
+        Supplier<TrialRandom> random = Arrays.asList(args).contains("-xoshiro") ? XoshiroTrialRandom::new
+                                                                                 : SplittableTrialRandom::new;
+        // only the flags are removed, so a negative seed is still a seed
+        args = Arrays.stream(args).filter(arg -> !FLAGS.contains(arg)).toArray(String[]::new);
         if (args.length < 2) {
-            System.out.printf("Invalid arguments:\nUsage:\n\tjava StatsTest [grid size] [number of tests] (-show)\n");
+            System.out.printf("Invalid arguments:\nUsage:\n\tjava StatsTest [grid size] [number of tests] (seed)"
+                              + " (threads) (checkpoint directory) (-metrics) (-clusters) (-xoshiro)\n");
+            return;
         }
-        boolean display = false;
-        int N = Integer.parseInt(args[0]);
+        Function<PercolationMetrics, ? extends LatticePercolation> lattice = parseLattice(args[0]);
         int T = Integer.parseInt(args[1]);
-        if (args.length == 3 && args[2].equals("-show")) {
-            display = true;
-        }
-        System.out.println("Running " + T + " tests of size " + N);
-        PercolationStats ps = new PercolationStats(N, T, display);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        PercolationCheckpoint checkpoint = args.length > 4 ? new PercolationCheckpoint(Paths.get(args[4]), 100) : null;
+        System.out.println("Running " + T + " tests of size " + args[0] + " with seed " + seed
+                           + " on " + threads + " threads");
+        CountingMetrics metrics = countMetrics ? new CountingMetrics() : null;
+        ClusterStatistics clusters = countClusters ? new ClusterStatistics() : null;
+        PercolationStats ps = new PercolationStats.Builder(lattice, T).seed(seed).threads(threads)
+                .random(random).checkpoint(checkpoint).metrics(metrics).clusters(clusters).build();
         System.out.printf("Mean: %.3f\nStandard Deviation: %.3f\nConfidence Low: %.3f\nConfidence High: %.3f\n",
-                           ps.mean(), ps.stddev(), ps.confidenceLow(), ps.confidenceHigh());
-        System.out.println("Failures: " + ps.failures());
-        System.out.printf("Average site vacancy at time of percolation: %.3f%%\n", siteVacancy(ps, N));
+                           ps.mean(), ps.stddev(), ps.confidenceLo(), ps.confidenceHi());
+        System.out.printf("Average site vacancy at time of percolation: %.3f%%\n", siteVacancy(ps));
+        System.out.printf("Tests per second: %.1f\n", ps.testsPerSecond());
+        if (metrics != null) {
+            System.out.print(metrics.report());
+        }
+        if (clusters != null) {
+            System.out.print(clusters.report());
+        }
+    }
+
+    /**
+     * @param size N, ROWSxCOLS or LAYERSxROWSxCOLS
+     * @return a factory for lattices of the given size, whose union finds report to the given metrics
+     */
+    private static Function<PercolationMetrics, ? extends LatticePercolation> parseLattice(String size) {
+        String[] dimensions = size.split("x");
+        switch (dimensions.length) {
+            case 1:
+                int N = Integer.parseInt(dimensions[0]);
+                return metrics -> new Percolation(N, unionFinds(metrics));
+            case 2:
+                int rows = Integer.parseInt(dimensions[0]);
+                int cols = Integer.parseInt(dimensions[1]);
+                return metrics -> new Percolation(rows, cols, false, unionFinds(metrics));
+            case 3:
+                int layers = Integer.parseInt(dimensions[0]);
+                int rows3D = Integer.parseInt(dimensions[1]);
+                int cols3D = Integer.parseInt(dimensions[2]);
+                return metrics -> new Percolation3D(layers, rows3D, cols3D, false, unionFinds(metrics));
+            default:
+                throw new IllegalArgumentException("Invalid grid size: " + size);
+        }
+    }
+
+    private static IntFunction<UnionFind> unionFinds(PercolationMetrics metrics) {
+        return n -> new WeightedQuickUnionPathCompressionUF(n, metrics);
     }
 
     /**
      * @param ps The PercolationStats system representing the system we are modeling.
-     * @param gridSize The size of the system we are modeling.
-     * @return the percentage of sites that were open at the time of percolation in the PercolationStats system
+     * @return the percentage of sites that were still blocked at the time of percolation in the PercolationStats system
      */
-    private static double siteVacancy(PercolationStats ps, int gridSize) {
-        return ((Math.pow(gridSize, 2) - ps.mean()) / Math.pow(gridSize, 2)) * 100.0;
+    private static double siteVacancy(PercolationStats ps) {
+        return (1.0 - ps.mean()) * 100.0;
     }
 }
@@ -0,0 +1,537 @@
+package Percolation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Percolation for grids too large to label on one thread, such as N = 20,000 and up. Instead of maintaining a
+ * union find over every site while sites are opened, opening a site only sets a bit, and percolates() labels
+ * the whole grid on demand:
+ * <ol>
+ *     <li>The grid is cut into horizontal strips. Every strip is labeled in parallel, one row at a time, in the
+ *     style of Hoshen–Kopelman: a site takes the label of the open site above or to the left of it and labels
+ *     that meet are merged in a small per-strip equivalence table. Only two rows of labels are kept at a time,
+ *     and whenever the table nears its capacity of four rows of labels it is rebuilt from the labels still in
+ *     use, those of the strip's first row and of the last row scanned, so it never grows with the height.</li>
+ *     <li>The final labels of each strip's top and bottom rows are renumbered compactly and merged across strip
+ *     boundaries in a QuickUnionPathCompressionUF, together with a virtual top and bottom site.</li>
+ * </ol>
+ * The merge structure holds at most two rows of labels per strip, so memory beyond the open bits is
+ * proportional to the number of strips times the width of the grid, not to the number of sites.
+ * <p>
+ * threshold() estimates the percolation threshold of a random grid without storing a permutation: every site
+ * gets a uniform value derived by hashing a seed with its id, the sites with values below p are open, and the
+ * smallest p at which the grid percolates is found by bisection, each step being one parallel labeling pass.
+ * <p>
+ * The same hashed values answer fixed probability questions directly: percolatesAt() asks whether the random
+ * grid with each site open at probability p percolates, and bondPercolatesAt() does the same for bond
+ * percolation, where every site is open and each bond between neighboring sites is open at probability p.
+ * Neither stores the random grid; fillRandom() writes it into the open bits in a single pass when it is needed
+ * afterwards. PercolationCurve uses these to estimate the probability of percolation as a function of p.
+ * <p>
+ * With a single thread the grid is labeled as one strip on the calling thread, which is the cheapest way to
+ * run many small grids side by side.
+ * <p>
+ * Objects of this class own a pool of worker threads and must be closed.
+ */
+public class StripPercolation implements AutoCloseable {
+    private int rows;
+    private int cols;
+    private int numStrips;
+    /** The open bit of every site, indexed by row * cols + col. */
+    private long[] openBits;
+    private long numOpenSites;
+    private ExecutorService pool;
+    /** Per strip scratch space, reused by every labeling pass. */
+    private StripLabeler[] labelers;
+
+    /**
+     * @param rows the number of rows of the grid
+     * @param cols the number of columns of the grid
+     * @param threads the number of worker threads labeling strips
+     */
+    public StripPercolation(int rows, int cols, int threads) {
+        if (rows <= 0 || cols <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Invalid args to StripPercolation Constructor");
+        }
+        long numSites = (long) rows * cols;
+        if ((numSites + 63) / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid too large: " + rows + " by " + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        // a few strips per thread so that a slow strip does not hold up the whole pass
+        numStrips = threads == 1 ? 1 : Math.min(rows, 4 * threads);
+        openBits = new long[(int) ((numSites + 63) / 64)];
+        numOpenSites = 0;
+        pool = numStrips > 1 ? Executors.newFixedThreadPool(threads) : null;
+        labelers = new StripLabeler[numStrips];
+        for (int strip = 0; strip < numStrips; ++strip) {
+            int firstRow = (int) ((long) rows * strip / numStrips);
+            int lastRow = (int) ((long) rows * (strip + 1) / numStrips) - 1;
+            labelers[strip] = new StripLabeler(firstRow, lastRow);
+        }
+    }
+
+    private void checkBounds(int row, int col) {
+        if (row >= rows || row < 0) {
+            throw new IndexOutOfBoundsException("Invalid row for grid of " + rows + " rows: " + row);
+        }
+        if (col >= cols || col < 0) {
+            throw new IndexOutOfBoundsException("Invalid column for grid of " + cols + " columns: " + col);
+        }
+    }
+
+    /**
+     * Opens the site at ROW, COL. Only sets a bit; connectivity is worked out by percolates().
+     */
+    public void open(int row, int col) {
+        checkBounds(row, col);
+        long site = (long) row * cols + col;
+        long mask = 1L << site;
+        int word = (int) (site >>> 6);
+        if ((openBits[word] & mask) == 0) {
+            openBits[word] |= mask;
+            numOpenSites += 1;
+        }
+    }
+
+    /**
+     * @return true if the site at ROW, COL has been opened.
+     */
+    public boolean isOpen(int row, int col) {
+        checkBounds(row, col);
+        long site = (long) row * cols + col;
+        return (openBits[(int) (site >>> 6)] & (1L << site)) != 0;
+    }
+
+    /**
+     * @return the number of sites that have been opened.
+     */
+    public long numberOfOpenSites() {
+        return numOpenSites;
+    }
+
+    /**
+     * Blocks every site again.
+     */
+    public void reset() {
+        Arrays.fill(openBits, 0L);
+        numOpenSites = 0;
+    }
+
+    /**
+     * Replaces the open sites with a random grid in which each site is open at probability p: site s is open
+     * when uniform(seed, s) &lt; p, so the grid is the one percolatesAt(p, seed) labels. Fills a whole word of
+     * open bits at a time.
+     */
+    public void fillRandom(double p, long seed) {
+        long numSites = (long) rows * cols;
+        long count = 0;
+        for (int word = 0; word < openBits.length; ++word) {
+            long first = (long) word << 6;
+            int bits = (int) Math.min(64, numSites - first);
+            long value = 0;
+            for (int bit = 0; bit < bits; ++bit) {
+                if (uniform(seed, first + bit) < p) {
+                    value |= 1L << bit;
+                }
+            }
+            openBits[word] = value;
+            count += Long.bitCount(value);
+        }
+        numOpenSites = count;
+    }
+
+    /**
+     * Labels the grid in parallel and determines whether the top row is connected to the bottom row.
+     */
+    public boolean percolates() {
+        return label(new OpenBits());
+    }
+
+    /**
+     * Determines whether the random grid with each site open at probability p percolates. Ignores the sites
+     * opened with open(). For a fixed seed, the open sites at a larger p include those at a smaller p.
+     *
+     * @param seed selects the random grid; the same seed always gives the same result
+     */
+    public boolean percolatesAt(double p, long seed) {
+        return label(new RandomOpenSites(seed, p));
+    }
+
+    /**
+     * Determines whether the random grid with every site open and each bond between neighboring sites open
+     * at probability p percolates. Ignores the sites opened with open().
+     *
+     * @param seed selects the random bonds; the same seed always gives the same result
+     */
+    public boolean bondPercolatesAt(double p, long seed) {
+        return label(new RandomOpenBonds(seed, p));
+    }
+
+    /**
+     * Estimates the percolation threshold of a random grid. Site s is open at probability p when
+     * uniform(seed, s) &lt; p; the smallest such p for which the grid percolates is found by bisection.
+     * Ignores the sites opened with open().
+     *
+     * @param seed selects the random grid; the same seed always gives the same result
+     * @return the fraction of sites that are open at the smallest p found to percolate
+     */
+    public double threshold(long seed) {
+        long numSites = (long) rows * cols;
+        double lo = 0.0;
+        double hi = 1.0;
+        long openAtHi = numSites;
+        // stop once less than about one site's worth of probability separates the bounds
+        while (hi - lo > 0.5 / numSites) {
+            double p = (lo + hi) / 2;
+            RandomOpenSites sites = new RandomOpenSites(seed, p);
+            if (label(sites)) {
+                hi = p;
+                openAtHi = openSitesCounted();
+            } else {
+                lo = p;
+            }
+        }
+        return (double) openAtHi / numSites;
+    }
+
+    private long openSitesCounted() {
+        long count = 0;
+        for (StripLabeler labeler : labelers) {
+            count += labeler.openCount;
+        }
+        return count;
+    }
+
+    /*
+     * Label every strip in parallel, then merge the strips' boundary rows.
+     */
+    private boolean label(OpenSites sites) {
+        if (pool == null) {
+            labelers[0].label(sites);
+            return mergeStrips();
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (StripLabeler labeler : labelers) {
+            tasks.add(() -> {
+                labeler.label(sites);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while labeling strips", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to label a strip", e.getCause());
+        }
+        return mergeStrips();
+    }
+
+    private boolean mergeStrips() {
+        int[] offsets = new int[numStrips];
+        int numLabels = 0;
+        for (int strip = 0; strip < numStrips; ++strip) {
+            offsets[strip] = numLabels;
+            numLabels += labelers[strip].numBoundaryLabels;
+        }
+        int virtualTop = numLabels;
+        int virtualBottom = numLabels + 1;
+        QuickUnionPathCompressionUF merged = new QuickUnionPathCompressionUF(numLabels + 2);
+        int[] top = labelers[0].topLabels;
+        int[] bottom = labelers[numStrips - 1].bottomLabels;
+        int bottomOffset = offsets[numStrips - 1];
+        for (int col = 0; col < cols; ++col) {
+            if (top[col] >= 0) {
+                merged.union(virtualTop, top[col]);
+            }
+            if (bottom[col] >= 0) {
+                merged.union(virtualBottom, bottomOffset + bottom[col]);
+            }
+        }
+        for (int strip = 0; strip + 1 < numStrips; ++strip) {
+            int[] above = labelers[strip].bottomLabels;
+            int[] below = labelers[strip + 1].topLabels;
+            boolean[] bonds = labelers[strip + 1].topBonds;
+            for (int col = 0; col < cols; ++col) {
+                if (above[col] >= 0 && below[col] >= 0 && bonds[col]) {
+                    merged.union(offsets[strip] + above[col], offsets[strip + 1] + below[col]);
+                }
+            }
+        }
+        return merged.connected(virtualTop, virtualBottom);
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * A source of open sites, filled in one row at a time.
+     */
+    private interface OpenSites {
+        void fillRow(int row, boolean[] open);
+
+        /*
+         * Fill in which bonds of the row are open: up[col] for the bond to the site above and left[col] for the
+         * bond to the site on the left. Returns false, leaving the arrays alone, if every bond is open.
+         */
+        default boolean fillBonds(int row, boolean[] up, boolean[] left) {
+            return false;
+        }
+    }
+
+    private class OpenBits implements OpenSites {
+        @Override
+        public void fillRow(int row, boolean[] open) {
+            long site = (long) row * cols;
+            for (int col = 0; col < cols; ++col, ++site) {
+                open[col] = (openBits[(int) (site >>> 6)] & (1L << site)) != 0;
+            }
+        }
+    }
+
+    private class RandomOpenSites implements OpenSites {
+        private long seed;
+        private double p;
+
+        RandomOpenSites(long seed, double p) {
+            this.seed = seed;
+            this.p = p;
+        }
+
+        @Override
+        public void fillRow(int row, boolean[] open) {
+            long site = (long) row * cols;
+            for (int col = 0; col < cols; ++col, ++site) {
+                open[col] = uniform(seed, site) < p;
+            }
+        }
+    }
+
+    private class RandomOpenBonds implements OpenSites {
+        private long seed;
+        private double p;
+
+        RandomOpenBonds(long seed, double p) {
+            this.seed = seed;
+            this.p = p;
+        }
+
+        @Override
+        public void fillRow(int row, boolean[] open) {
+            Arrays.fill(open, true);
+        }
+
+        /*
+         * The bonds above and to the left of site s are numbered 2s and 2s + 1.
+         */
+        @Override
+        public boolean fillBonds(int row, boolean[] up, boolean[] left) {
+            long site = (long) row * cols;
+            for (int col = 0; col < cols; ++col, ++site) {
+                up[col] = uniform(seed, 2 * site) < p;
+                left[col] = uniform(seed, 2 * site + 1) < p;
+            }
+            return true;
+        }
+    }
+
+    /*
+     * A uniform value in [0, 1) for the given site, derived by hashing it with the seed (SplitMix64 finalizer).
+     */
+    private static double uniform(long seed, long site) {
+        long z = seed + (site + 1) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /*
+     * Labels one strip of rows. After label() returns, topLabels and bottomLabels hold, for every column of the
+     * strip's first and last row, a compact label between 0 and numBoundaryLabels - 1 shared by all boundary
+     * sites of the same component within the strip, or -1 for blocked sites.
+     */
+    private class StripLabeler {
+        private int firstRow;
+        private int lastRow;
+        private boolean[] open;
+        private boolean[] up;
+        private boolean[] left;
+        private int[] previous;
+        private int[] current;
+        /** Equivalences between the provisional labels handed out while scanning. */
+        private int[] parent;
+        private int numLabels;
+        /** Maps root labels to compact labels, when relabeling and for the boundary labels. */
+        private int[] compact;
+
+        int[] topLabels;
+        int[] bottomLabels;
+        /** Whether the bond from each site of the first row to the site above it, in the previous strip, is open. */
+        boolean[] topBonds;
+        int numBoundaryLabels;
+        long openCount;
+
+        StripLabeler(int firstRow, int lastRow) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            open = new boolean[cols];
+            up = new boolean[cols];
+            left = new boolean[cols];
+            topBonds = new boolean[cols];
+            previous = new int[cols];
+            current = new int[cols];
+            // a row hands out at most cols labels, and after relabeling at most cols + 1 are in use
+            parent = new int[Math.max(16, 4 * cols)];
+            compact = new int[parent.length];
+            topLabels = new int[cols];
+            bottomLabels = new int[cols];
+        }
+
+        void label(OpenSites sites) {
+            numLabels = 0;
+            openCount = 0;
+            Arrays.fill(previous, -1);
+            Arrays.fill(topBonds, true);
+            for (int row = firstRow; row <= lastRow; ++row) {
+                sites.fillRow(row, open);
+                boolean bonded = sites.fillBonds(row, up, left);
+                for (int col = 0; col < cols; ++col) {
+                    if (!open[col]) {
+                        current[col] = -1;
+                        continue;
+                    }
+                    openCount += 1;
+                    int labelUp = previous[col];
+                    int labelLeft = col > 0 ? current[col - 1] : -1;
+                    if (bonded) {
+                        labelUp = up[col] ? labelUp : -1;
+                        labelLeft = left[col] ? labelLeft : -1;
+                    }
+                    if (labelUp < 0 && labelLeft < 0) {
+                        current[col] = newLabel();
+                    } else if (labelUp < 0) {
+                        current[col] = labelLeft;
+                    } else if (labelLeft < 0) {
+                        current[col] = labelUp;
+                    } else {
+                        current[col] = union(labelUp, labelLeft);
+                    }
+                }
+                if (row == firstRow) {
+                    System.arraycopy(current, 0, topLabels, 0, cols);
+                    if (bonded) {
+                        System.arraycopy(up, 0, topBonds, 0, cols);
+                    }
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+                if (numLabels + cols > parent.length) {
+                    relabel();
+                }
+            }
+            System.arraycopy(previous, 0, bottomLabels, 0, cols);
+            compactBoundaryLabels();
+        }
+
+        /*
+         * Replace the labels still in use, those of the first row and the last row scanned, by the labels
+         * 0 to k - 1 of a fresh table in which every label is its own root, one label per component.
+         */
+        private void relabel() {
+            if (compact.length < numLabels) {
+                compact = new int[parent.length];
+            }
+            Arrays.fill(compact, 0, numLabels, -1);
+            int live = 0;
+            live = relabelRow(topLabels, live);
+            live = relabelRow(previous, live);
+            for (int label = 0; label < live; ++label) {
+                parent[label] = label;
+            }
+            numLabels = live;
+        }
+
+        private int relabelRow(int[] labels, int live) {
+            for (int col = 0; col < cols; ++col) {
+                if (labels[col] >= 0) {
+                    int root = find(labels[col]);
+                    if (compact[root] < 0) {
+                        compact[root] = live++;
+                    }
+                    labels[col] = compact[root];
+                }
+            }
+            return live;
+        }
+
+        private int newLabel() {
+            if (numLabels == parent.length) {
+                parent = Arrays.copyOf(parent, 2 * parent.length);
+            }
+            parent[numLabels] = numLabels;
+            return numLabels++;
+        }
+
+        private int find(int label) {
+            while (label != parent[label]) {
+                parent[label] = parent[parent[label]];
+                label = parent[label];
+            }
+            return label;
+        }
+
+        /*
+         * Merge two labels, keeping the smaller root, and return the resulting root.
+         */
+        private int union(int p, int q) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP < rootQ) {
+                parent[rootQ] = rootP;
+                return rootP;
+            }
+            parent[rootP] = rootQ;
+            return rootQ;
+        }
+
+        private void compactBoundaryLabels() {
+            if (compact.length < numLabels) {
+                compact = new int[parent.length];
+            }
+            Arrays.fill(compact, 0, numLabels, -1);
+            numBoundaryLabels = 0;
+            compactRow(topLabels);
+            compactRow(bottomLabels);
+        }
+
+        private void compactRow(int[] labels) {
+            for (int col = 0; col < cols; ++col) {
+                if (labels[col] >= 0) {
+                    int root = find(labels[col]);
+                    if (compact[root] < 0) {
+                        compact[root] = numBoundaryLabels++;
+                    }
+                    labels[col] = compact[root];
+                }
+            }
+        }
+    }
+}
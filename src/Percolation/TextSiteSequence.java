@@ -0,0 +1,52 @@
+package Percolation;
+
+import java.io.IOException;
+
+/**
+ * A site sequence in the text format of the files in input/: the grid size followed by
+ * whitespace-separated row and column pairs.
+ */
+public class TextSiteSequence implements SiteSequence {
+    private SiteSequenceReader in;
+    private int N;
+    private int row;
+    private int col;
+
+    /**
+     * @param in a reader positioned at the grid size
+     */
+    public TextSiteSequence(SiteSequenceReader in) throws IOException {
+        this.in = in;
+        N = in.nextInt();
+    }
+
+    @Override
+    public int gridSize() {
+        return N;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!in.hasNextInt()) {
+            return false;
+        }
+        row = in.nextInt();
+        col = in.nextInt();
+        return true;
+    }
+
+    @Override
+    public int row() {
+        return row;
+    }
+
+    @Override
+    public int col() {
+        return col;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
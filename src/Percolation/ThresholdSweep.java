@@ -0,0 +1,215 @@
+package Percolation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import edu.princeton.cs.algs4.StdStats;
+
+/**
+ * Runs PercolationStats style tests for a whole list of grid sizes in one job and prints a table of the
+ * threshold statistics per size, for finite-size scaling studies. All sizes share one pool of worker threads.
+ * The tests are handed out largest grid first, so the long tests start early and the short ones fill in the
+ * gaps at the end. Each worker keeps one grid and one trial and only allocates a new grid when it moves on to
+ * the next size.
+ * <p>
+ * The tests of size N use the base seed PercolationStats.testSeed(seed, N), so the row for N matches
+ * {@code new PercolationStats(N, T, testSeed(seed, N), threads)} exactly, given the same kind of TrialRandom.
+ * <p>
+ * Usage:
+ * <pre>
+ * java Percolation.ThresholdSweep [sizes] [tests per size] (seed) (threads) (csv|json)
+ * </pre>
+ * where sizes is a comma separated list such as 32,64,100 or a doubling range such as 32..8192.
+ */
+public class ThresholdSweep {
+    /** The scaling factor for calculating the confidence interval. */
+    private static final double CONFIDENCE_SCALING_FACTOR = 1.96;
+
+    /** The grid sizes, largest first. */
+    private int[] sizes;
+    private int T;
+    /** thresholds[i][k] is the threshold of test k of sizes[i]. */
+    private double[][] thresholds;
+    /** The total time workers spent on the tests of each size, in nanoseconds. */
+    private long[] busyNanos;
+
+    /**
+     * @param sizes the grid sizes to test
+     * @param T the number of tests per size
+     * @param seed the base seed of the sweep
+     * @param threads the number of worker threads to use
+     */
+    public ThresholdSweep(int[] sizes, int T, long seed, int threads) {
+        this(sizes, T, seed, threads, SplittableTrialRandom::new);
+    }
+
+    /**
+     * Runs the sweep like the constructor above, drawing the tests from the given kind of random stream.
+     *
+     * @param randomFactory creates one random stream per worker, e.g. {@code XoshiroTrialRandom::new}
+     */
+    public ThresholdSweep(int[] sizes, int T, long seed, int threads, Supplier<TrialRandom> randomFactory) {
+        if (sizes.length == 0 || T <= 1 || threads <= 0) {
+            throw new IllegalArgumentException("Invalid args to ThresholdSweep Constructor");
+        }
+        this.sizes = sizes.clone();
+        Arrays.sort(this.sizes);
+        for (int i = 0, j = this.sizes.length - 1; i < j; ++i, --j) {
+            int swap = this.sizes[i];
+            this.sizes[i] = this.sizes[j];
+            this.sizes[j] = swap;
+        }
+        if (this.sizes[this.sizes.length - 1] <= 0) {
+            throw new IllegalArgumentException("Grid sizes must be positive");
+        }
+        this.T = T;
+        thresholds = new double[this.sizes.length][T];
+        busyNanos = new long[this.sizes.length];
+        runTests(seed, threads, randomFactory);
+    }
+
+    /*
+     * Work item w is test w % T of size w / T, so claiming items in order walks from the largest size
+     * to the smallest.
+     */
+    private void runTests(long seed, int threads, Supplier<TrialRandom> randomFactory) {
+        AtomicInteger nextItem = new AtomicInteger();
+        int numItems = sizes.length * T;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                workers.add(pool.submit(() -> {
+                    long[] busy = new long[sizes.length];
+                    PercolationTrial trial = new PermutationTrial();
+                    TrialRandom random = randomFactory.get();
+                    Percolation perc = null;
+                    int item;
+                    while ((item = nextItem.getAndIncrement()) < numItems) {
+                        int size = item / T;
+                        int testNumber = item % T;
+                        int N = sizes[size];
+                        long start = System.nanoTime();
+                        if (perc == null || perc.cols() != N) {
+                            perc = null;    // let the previous, larger grid go before allocating
+                            perc = new Percolation(N);
+                        }
+                        long sizeSeed = PercolationStats.testSeed(seed, N);
+                        random.startTrial(sizeSeed, testNumber);
+                        perc.reset();
+                        thresholds[size][testNumber] = trial.run(perc, random);
+                        busy[size] += System.nanoTime() - start;
+                    }
+                    return busy;
+                }));
+            }
+            for (Future<long[]> worker : workers) {
+                long[] busy = worker.get();
+                for (int size = 0; size < sizes.length; ++size) {
+                    busyNanos[size] += busy[size];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running tests", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A test failed to run", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** The grid sizes of the sweep, largest first. */
+    public int[] sizes() {
+        return sizes.clone();
+    }
+
+    /** Mean of percolation threshold for the i-th size. */
+    public double mean(int i) {
+        return StdStats.mean(thresholds[i]);
+    }
+
+    /** Standard deviation of percolation threshold for the i-th size. */
+    public double stddev(int i) {
+        return StdStats.stddev(thresholds[i]);
+    }
+
+    /** Low endpoint of 95% confidence interval for the i-th size. */
+    public double confidenceLo(int i) {
+        return mean(i) - ((CONFIDENCE_SCALING_FACTOR * stddev(i)) / Math.sqrt(T));
+    }
+
+    /** High endpoint of 95% confidence interval for the i-th size. */
+    public double confidenceHi(int i) {
+        return mean(i) + ((CONFIDENCE_SCALING_FACTOR * stddev(i)) / Math.sqrt(T));
+    }
+
+    /**
+     * @return the table as CSV with a header line, smallest size first.
+     */
+    public String toCsv() {
+        StringBuilder out = new StringBuilder("N,tests,mean,stddev,confidenceLo,confidenceHi,cpuSeconds\n");
+        for (int i = sizes.length - 1; i >= 0; --i) {
+            out.append(String.format(Locale.ROOT, "%d,%d,%.6f,%.6f,%.6f,%.6f,%.3f\n", sizes[i], T, mean(i),
+                    stddev(i), confidenceLo(i), confidenceHi(i), busyNanos[i] / 1e9));
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return the table as a JSON array of one object per size, smallest size first.
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder("[\n");
+        for (int i = sizes.length - 1; i >= 0; --i) {
+            out.append(String.format(Locale.ROOT,
+                    "  {\"N\": %d, \"tests\": %d, \"mean\": %.6f, \"stddev\": %.6f, \"confidenceLo\": %.6f, "
+                            + "\"confidenceHi\": %.6f, \"cpuSeconds\": %.3f}",
+                    sizes[i], T, mean(i), stddev(i), confidenceLo(i), confidenceHi(i), busyNanos[i] / 1e9));
+            out.append(i > 0 ? ",\n" : "\n");
+        }
+        return out.append("]\n").toString();
+    }
+
+    /*
+     * Parse a comma separated list of sizes, or a range FROM..TO of sizes doubling from FROM up to TO.
+     */
+    private static int[] parseSizes(String arg) {
+        int range = arg.indexOf("..");
+        if (range >= 0) {
+            int from = Integer.parseInt(arg.substring(0, range));
+            int to = Integer.parseInt(arg.substring(range + 2));
+            if (from <= 0 || to < from) {
+                throw new IllegalArgumentException("Invalid size range: " + arg);
+            }
+            List<Integer> sizes = new ArrayList<>();
+            for (long N = from; N <= to; N *= 2) {
+                sizes.add((int) N);
+            }
+            return sizes.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return Arrays.stream(arg.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.printf("Invalid arguments:\nUsage:\n\tjava ThresholdSweep [sizes] [tests per size] (seed) (threads) (csv|json)\n");
+            return;
+        }
+        int[] sizes = parseSizes(args[0]);
+        int T = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        boolean json = args.length > 4 && args[4].equals("json");
+        ThresholdSweep sweep = new ThresholdSweep(sizes, T, seed, threads);
+        System.out.print(json ? sweep.toJson() : sweep.toCsv());
+    }
+}
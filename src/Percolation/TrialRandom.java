@@ -0,0 +1,28 @@
+package Percolation;
+
+/**
+ * The source of random numbers for percolation tests. Every test is given its own stream, selected by a base
+ * seed and the test number: after startTrial(seed, k) the numbers drawn depend on nothing but seed and k, so
+ * test k produces the same threshold whichever worker runs it, in whatever order, and whatever the generator
+ * drew before. That is what makes parallel runs, and runs resumed from a checkpoint, repeatable.
+ * <p>
+ * A new instance starts at the stream of test 0 of seed 0. An instance is reused for every test a worker runs
+ * and must only be used by one thread at a time.
+ * SplittableTrialRandom reproduces the streams earlier versions drew from java.util.SplittableRandom;
+ * XoshiroTrialRandom draws faster and reseeds its state for each test without allocating.
+ */
+public interface TrialRandom {
+    /**
+     * Moves to the start of the stream of a test.
+     *
+     * @param seed the base seed of the run
+     * @param testNumber the number of the test, from 0
+     */
+    void startTrial(long seed, int testNumber);
+
+    /**
+     * @return a uniformly distributed int between 0 (inclusive) and BOUND (exclusive)
+     * @throws IllegalArgumentException if BOUND is not positive
+     */
+    int nextInt(int bound);
+}
@@ -0,0 +1,74 @@
+package Percolation;
+
+/**
+ * A union–find data structure over the sites 0 through n-1. Implementations differ in how they
+ * link trees on union and how they shorten paths on find, which Percolation lets its client choose.
+ */
+public interface UnionFind {
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components (between {@code 1} and {@code n})
+     */
+    int count();
+
+    /**
+     * Returns the component identifier for the component containing site {@code p}.
+     *
+     * @param  p the integer representing one object
+     * @return the component identifier for the component containing site {@code p}
+     * @throws IndexOutOfBoundsException unless {@code 0 <= p < n}
+     */
+    int find(int p);
+
+    /**
+     * Returns the component identifier for the component containing site {@code p}, like find, but without
+     * shortening any path. Never writes, so any number of threads may call it at once as long as no thread
+     * is changing the data structure.
+     *
+     * @param  p the integer representing one object
+     * @return the component identifier for the component containing site {@code p}
+     * @throws IndexOutOfBoundsException unless {@code 0 <= p < n}
+     */
+    int root(int p);
+
+    /**
+     * Returns true if the the two sites are in the same component.
+     *
+     * @param  p the integer representing one site
+     * @param  q the integer representing the other site
+     * @return {@code true} if the two sites {@code p} and {@code q} are in the same component;
+     *         {@code false} otherwise
+     * @throws IndexOutOfBoundsException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    boolean connected(int p, int q);
+
+    /**
+     * Merges the component containing site {@code p} with the
+     * the component containing site {@code q}.
+     *
+     * @param  p the integer representing one site
+     * @param  q the integer representing the other site
+     * @throws IndexOutOfBoundsException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    void union(int p, int q);
+
+    /**
+     * Merges the two components whose roots are {@code rootP} and {@code rootQ}, like union but without
+     * finding the roots again, for clients that have just found them.
+     *
+     * @param  rootP the root of one component, as returned by find
+     * @param  rootQ the root of another component, as returned by find
+     * @return the root of the merged component, which is either {@code rootP} or {@code rootQ}
+     * @throws IllegalArgumentException if {@code rootP == rootQ}
+     */
+    int link(int rootP, int rootQ);
+
+    /**
+     * Restores the data structure to n isolated components in place, so that it can be reused
+     * without allocating a new one.
+     */
+    void reset();
+}
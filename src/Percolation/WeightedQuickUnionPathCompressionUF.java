@@ -0,0 +1,162 @@
+package Percolation;
+
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+
+/******************************************************************************
+ *  Compilation:  javac WeightedQuickUnionPathCompressionUF.java
+ *  Execution:  java WeightedQuickUnionPathCompressionUF < input.txt
+ *  Dependencies: StdIn.java StdOut.java
+ *  Data files:   http://algs4.cs.princeton.edu/15uf/tinyUF.txt
+ *                http://algs4.cs.princeton.edu/15uf/mediumUF.txt
+ *                http://algs4.cs.princeton.edu/15uf/largeUF.txt
+ *
+ *  Weighted quick-union (by size) with full path compression.
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code WeightedQuickUnionPathCompressionUF} class represents a
+ *  union–find data structure.
+ *  It supports the <em>union</em> and <em>find</em> operations, along with
+ *  methods for determining whether two sites are in the same component
+ *  and the total number of components.
+ *  <p>
+ *  This implementation uses weighted quick union by size with full path compression.
+ *  The root of the smaller tree is always linked under the root of the larger one,
+ *  so no tree is ever deeper than lg <em>n</em> even before compression.
+ *  Initializing a data structure with <em>n</em> sites takes linear time.
+ *  Afterwards, <em>union</em>, <em>find</em>, and <em>connected</em> take
+ *  near-constant amortized time (inverse Ackermann) and <em>count</em> takes constant time.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/15uf">Section 1.5</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ */
+public class WeightedQuickUnionPathCompressionUF implements UnionFind {
+    private int[] id;    // id[i] = parent of i
+    private int[] size;  // size[i] = number of sites in tree rooted at i
+    private int count;   // number of components
+    private PercolationMetrics metrics = PercolationMetrics.NONE;
+
+    /**
+     * Initializes an empty union–find data structure with n isolated components 0 through n-1.
+     * @param n the number of sites
+     * @throws java.lang.IllegalArgumentException if n < 0
+     */
+    public WeightedQuickUnionPathCompressionUF(int n) {
+        count = n;
+        id = new int[n];
+        size = new int[n];
+        for (int i = 0; i < n; i++) {
+            id[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * Initializes an empty union–find data structure with n isolated components 0 through n-1
+     * that reports every find and union to the given metrics.
+     * @param n the number of sites
+     * @param metrics receives the finds and unions, e.g. a CountingMetrics
+     */
+    public WeightedQuickUnionPathCompressionUF(int n, PercolationMetrics metrics) {
+        this(n);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public int find(int p) {
+        int root = p;
+        int depth = 0;
+        while (root != id[root]) {
+            root = id[root];
+            depth++;
+        }
+        while (p != root) {
+            int newp = id[p];
+            id[p] = root;
+            p = newp;
+        }
+        // every link but the last one, which already pointed at the root, was rewritten
+        metrics.found(depth, Math.max(depth - 1, 0));
+        return root;
+    }
+
+    @Override
+    public int root(int p) {
+        while (p != id[p])
+            p = id[p];
+        return p;
+    }
+
+    @Override
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    @Override
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            metrics.united(false);
+            return;
+        }
+        link(rootP, rootQ);
+    }
+
+    @Override
+    public int link(int rootP, int rootQ) {
+        if (rootP == rootQ) {
+            throw new IllegalArgumentException("Cannot link a root to itself: " + rootP);
+        }
+        metrics.united(true);
+        count--;
+        // make smaller root point to larger one
+        if (size[rootP] < size[rootQ]) {
+            id[rootP] = rootQ;
+            size[rootQ] += size[rootP];
+            return rootQ;
+        }
+        else {
+            id[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+            return rootP;
+        }
+    }
+
+    @Override
+    public void reset() {
+        count = id.length;
+        for (int i = 0; i < id.length; i++) {
+            id[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * Reads in a sequence of pairs of integers (between 0 and n-1) from standard input,
+     * where each integer represents some object;
+     * if the sites are in different components, merge the two components
+     * and print the pair to standard output.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = StdIn.readInt();
+        WeightedQuickUnionPathCompressionUF uf = new WeightedQuickUnionPathCompressionUF(n);
+        while (!StdIn.isEmpty()) {
+            int p = StdIn.readInt();
+            int q = StdIn.readInt();
+            if (uf.connected(p, q)) continue;
+            uf.union(p, q);
+            StdOut.println(p + " " + q);
+        }
+        StdOut.println(uf.count() + " components");
+    }
+}
@@ -0,0 +1,163 @@
+package Percolation;
+
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+
+/******************************************************************************
+ *  Compilation:  javac WeightedQuickUnionPathHalvingUF.java
+ *  Execution:  java WeightedQuickUnionPathHalvingUF < input.txt
+ *  Dependencies: StdIn.java StdOut.java
+ *  Data files:   http://algs4.cs.princeton.edu/15uf/tinyUF.txt
+ *                http://algs4.cs.princeton.edu/15uf/mediumUF.txt
+ *                http://algs4.cs.princeton.edu/15uf/largeUF.txt
+ *
+ *  Weighted quick-union (by rank) with path halving.
+ *
+ ******************************************************************************/
+
+/**
+ *  The {@code WeightedQuickUnionPathHalvingUF} class represents a
+ *  union–find data structure.
+ *  It supports the <em>union</em> and <em>find</em> operations, along with
+ *  methods for determining whether two sites are in the same component
+ *  and the total number of components.
+ *  <p>
+ *  This implementation uses weighted quick union by rank with path halving: every site
+ *  visited by <em>find</em> is pointed at its grandparent, which needs a single pass
+ *  over the path instead of the two passes of full compression. A rank never exceeds
+ *  lg <em>n</em> &lt; 32, so ranks are stored in a byte array at a quarter of the memory
+ *  of a size array.
+ *  Initializing a data structure with <em>n</em> sites takes linear time.
+ *  Afterwards, <em>union</em>, <em>find</em>, and <em>connected</em> take
+ *  near-constant amortized time (inverse Ackermann) and <em>count</em> takes constant time.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/15uf">Section 1.5</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ */
+public class WeightedQuickUnionPathHalvingUF implements UnionFind {
+    private int[] parent; // parent[i] = parent of i
+    private byte[] rank;  // rank[i] = upper bound on the height of the tree rooted at i
+    private int count;    // number of components
+    private PercolationMetrics metrics = PercolationMetrics.NONE;
+
+    /**
+     * Initializes an empty union–find data structure with n isolated components 0 through n-1.
+     * @param n the number of sites
+     * @throws java.lang.IllegalArgumentException if n < 0
+     */
+    public WeightedQuickUnionPathHalvingUF(int n) {
+        count = n;
+        parent = new int[n];
+        rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Initializes an empty union–find data structure with n isolated components 0 through n-1
+     * that reports every find and union to the given metrics.
+     * @param n the number of sites
+     * @param metrics receives the finds and unions, e.g. a CountingMetrics
+     */
+    public WeightedQuickUnionPathHalvingUF(int n, PercolationMetrics metrics) {
+        this(n);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public int find(int p) {
+        int depth = 0;
+        int compressed = 0;
+        while (p != parent[p]) {
+            if (parent[p] != parent[parent[p]]) {
+                compressed++;
+                depth++;
+            }
+            parent[p] = parent[parent[p]];    // path compression by halving
+            p = parent[p];
+            depth++;
+        }
+        metrics.found(depth, compressed);
+        return p;
+    }
+
+    @Override
+    public int root(int p) {
+        while (p != parent[p])
+            p = parent[p];
+        return p;
+    }
+
+    @Override
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    @Override
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            metrics.united(false);
+            return;
+        }
+        link(rootP, rootQ);
+    }
+
+    @Override
+    public int link(int rootP, int rootQ) {
+        if (rootP == rootQ) {
+            throw new IllegalArgumentException("Cannot link a root to itself: " + rootP);
+        }
+        metrics.united(true);
+        count--;
+        // make root of smaller rank point to root of larger rank
+        if (rank[rootP] < rank[rootQ]) {
+            parent[rootP] = rootQ;
+            return rootQ;
+        }
+        if (rank[rootP] == rank[rootQ]) {
+            rank[rootP]++;
+        }
+        parent[rootQ] = rootP;
+        return rootP;
+    }
+
+    @Override
+    public void reset() {
+        count = parent.length;
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        Arrays.fill(rank, (byte) 0);
+    }
+
+    /**
+     * Reads in a sequence of pairs of integers (between 0 and n-1) from standard input,
+     * where each integer represents some object;
+     * if the sites are in different components, merge the two components
+     * and print the pair to standard output.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = StdIn.readInt();
+        WeightedQuickUnionPathHalvingUF uf = new WeightedQuickUnionPathHalvingUF(n);
+        while (!StdIn.isEmpty()) {
+            int p = StdIn.readInt();
+            int q = StdIn.readInt();
+            if (uf.connected(p, q)) continue;
+            uf.union(p, q);
+            StdOut.println(p + " " + q);
+        }
+        StdOut.println(uf.count() + " components");
+    }
+}
@@ -0,0 +1,68 @@
+package Percolation;
+
+/**
+ * A TrialRandom built on the xoshiro256++ generator of Blackman and Vigna, with 256 bits of state and a period
+ * of 2^256 - 1. The state of test k of a base seed is filled with SplitMix64 from PercolationStats.testSeed(seed,
+ * k), the seed SplittableTrialRandom starts the same test from, so starting a test costs four mixes whatever
+ * test the generator was on before. Tests start at independent points of the period, so the chance of two of
+ * them overlapping is negligible. Bounded ints are drawn with Lemire's multiply and shift method, which needs
+ * no division except, rarely, to reject a biased draw.
+ */
+public class XoshiroTrialRandom implements TrialRandom {
+    /** The state of the generator. */
+    private long s0, s1, s2, s3;
+
+    public XoshiroTrialRandom() {
+        startTrial(0, 0);
+    }
+
+    @Override
+    public void startTrial(long seed, int testNumber) {
+        if (testNumber < 0) {
+            throw new IllegalArgumentException("Invalid test number: " + testNumber);
+        }
+        // SplitMix64 never yields four zeros in a row, the one state xoshiro cannot leave
+        long z = PercolationStats.testSeed(seed, testNumber);
+        s0 = mix64(z += 0x9e3779b97f4a7c15L);
+        s1 = mix64(z += 0x9e3779b97f4a7c15L);
+        s2 = mix64(z += 0x9e3779b97f4a7c15L);
+        s3 = mix64(z + 0x9e3779b97f4a7c15L);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the next 64 random bits of the stream.
+     */
+    public long nextLong() {
+        long result = Long.rotateLeft(s0 + s3, 23) + s0;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xffffffffL) < bound) {
+            // the low half of the product falls in the short range that would make some results more likely
+            long threshold = (1L << 32) % bound;
+            while ((product & 0xffffffffL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+}